@@ -0,0 +1,525 @@
+/*
+ * ChunkedList.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.RandomAccess;
+
+/**
+ * A list stored as a directory of fixed-capacity chunks, each holding a
+ * contiguous run of elements, whose copies share their chunks.
+ * <p>
+ * <tt>copy()</tt> takes constant time: the copy and this list share the
+ * directory and all the chunks. Each of them takes its own copy of the
+ * directory, and of a chunk, only when it first changes it, so a change
+ * costs at most the copy of one chunk and of the directory, however large the
+ * list. Ownership is tracked with a token per list: a chunk is only changed
+ * in place by the list holding its token, and copying a list gives both
+ * lists new tokens.
+ * <p>
+ * Chunks need not be full. An element is located by binary search over the
+ * index of the first element of each chunk, and the last chunk located is
+ * remembered so that sequential access takes constant time. Inserting or
+ * removing an element only moves elements within its chunk; a full chunk is
+ * split in two and an empty one is dropped.
+ * <p>
+ * This class is not synchronized, the owning data set is expected to guard
+ * it.
+ */
+final class ChunkedList extends AbstractList implements RandomAccess {
+
+        /** Capacity of each chunk, in elements */
+        static final int CHUNK_SIZE = 512;
+
+        /**
+         * A run of elements, stored in <tt>items[from, from + count)</tt>.
+         */
+        private static final class Chunk {
+                final Object items[];
+                int from;
+                int count;
+                final Object owner;
+
+                Chunk(Object owner) {
+                        this.items = new Object[CHUNK_SIZE];
+                        this.owner = owner;
+                }
+
+                Chunk copy(Object owner) {
+                        Chunk chunk = new Chunk(owner);
+                        System.arraycopy(items, from, chunk.items, from, count);
+                        chunk.from = from;
+                        chunk.count = count;
+                        return chunk;
+                }
+        }
+
+        private Chunk chunks[]; // directory, chunks in use are [first, last)
+        private int starts[]; // position of the first element of each chunk
+        private int first = 0;
+        private int last = 0;
+        private int valid = 0; // starts known for the chunks [first, valid)
+        private int base = 0; // position of the element at index 0
+        private int size = 0;
+        private int cursor = -1; // chunk last located
+
+        private Object owner = new Object();
+        private boolean isShared = false; // directory shared with a copy
+
+        /**
+         * Constructs an empty list.
+         */
+        ChunkedList() {
+                chunks = new Chunk[4];
+                starts = new int[4];
+        }
+
+        /**
+         * Constructs a list holding the elements of the specified collection, in
+         * the order of its iterator.
+         *
+         * @param collection
+         *            elements to be added
+         */
+        ChunkedList(Collection collection) {
+                this();
+
+                for (Iterator it = collection.iterator(); it.hasNext();) {
+                        add(it.next());
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Persistence
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Creates a copy of this list in constant time. The copy shares the
+         * chunks of this list until either list changes them.
+         *
+         * @return a new list instance
+         */
+        ChunkedList copy() {
+                ChunkedList list = new ChunkedList();
+
+                list.chunks = chunks;
+                list.starts = starts;
+                list.first = first;
+                list.last = last;
+                list.valid = valid;
+                list.base = base;
+                list.size = size;
+                list.isShared = true;
+
+                // Neither list may change the chunks in place anymore
+                owner = new Object();
+                isShared = true;
+
+                return list;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // List Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        public int size() {
+                return size;
+        }
+
+        public Object get(int index) {
+                checkIndex(index, size - 1);
+
+                int k = locate(base + index);
+                Chunk chunk = chunks[k];
+
+                return chunk.items[chunk.from + base + index - starts[k]];
+        }
+
+        public Object set(int index, Object element) {
+                checkIndex(index, size - 1);
+
+                int k = locate(base + index);
+                Chunk chunk = writable(k);
+                int i = chunk.from + base + index - starts[k];
+                Object old = chunk.items[i];
+
+                chunk.items[i] = element;
+
+                return old;
+        }
+
+        public boolean add(Object element) {
+                own();
+
+                Chunk chunk = last > first ? chunks[last - 1] : null;
+
+                if (chunk == null || chunk.from + chunk.count == CHUNK_SIZE) {
+                        int position = base + size;
+
+                        chunk = new Chunk(owner);
+                        ensureTail();
+                        chunks[last] = chunk;
+                        starts[last] = position;
+
+                        if (valid == last) {
+                                valid++;
+                        }
+
+                        last++;
+                } else {
+                        chunk = writable(last - 1);
+                }
+
+                chunk.items[chunk.from + chunk.count] = element;
+                chunk.count++;
+                size++;
+                modCount++;
+
+                return true;
+        }
+
+        public void add(int index, Object element) {
+                checkIndex(index, size);
+
+                if (index == size) {
+                        add(element);
+                } else if (index == 0) {
+                        addFirst(element);
+                } else {
+                        int k = locate(base + index);
+
+                        if (chunks[k].count == CHUNK_SIZE) {
+                                split(k);
+                                k = locate(base + index);
+                        }
+
+                        Chunk chunk = writable(k);
+                        int offset = base + index - starts[k];
+
+                        if (chunk.from + chunk.count == CHUNK_SIZE) {
+                                // No room behind, move the run to the front
+                                System.arraycopy(chunk.items, chunk.from, chunk.items, 0,
+                                                chunk.count);
+                                Arrays.fill(chunk.items, chunk.count, chunk.from
+                                                + chunk.count, null);
+                                chunk.from = 0;
+                        }
+
+                        int i = chunk.from + offset;
+
+                        System.arraycopy(chunk.items, i, chunk.items, i + 1, chunk.count
+                                        - offset);
+                        chunk.items[i] = element;
+                        chunk.count++;
+                        size++;
+                        invalidate(k + 1);
+                        modCount++;
+                }
+        }
+
+        public Object remove(int index) {
+                checkIndex(index, size - 1);
+
+                int k = locate(base + index);
+                Chunk chunk = writable(k);
+                int offset = base + index - starts[k];
+                int i = chunk.from + offset;
+                Object old = chunk.items[i];
+
+                if (index == 0) {
+                        // Positions of the other elements are unchanged
+                        chunk.items[i] = null;
+                        chunk.from++;
+                        starts[k]++;
+                        base++;
+                } else if (offset < chunk.count >> 1) {
+                        System.arraycopy(chunk.items, chunk.from, chunk.items,
+                                        chunk.from + 1, offset);
+                        chunk.items[chunk.from++] = null;
+                        invalidate(k + 1);
+                } else {
+                        System.arraycopy(chunk.items, i + 1, chunk.items, i, chunk.count
+                                        - offset - 1);
+                        chunk.items[chunk.from + chunk.count - 1] = null;
+                        invalidate(k + 1);
+                }
+
+                chunk.count--;
+                size--;
+
+                if (chunk.count == 0) {
+                        drop(k);
+                }
+
+                modCount++;
+
+                return old;
+        }
+
+        public void clear() {
+                chunks = new Chunk[4];
+                starts = new int[4];
+                first = 0;
+                last = 0;
+                valid = 0;
+                base = 0;
+                size = 0;
+                cursor = -1;
+                isShared = false;
+                modCount++;
+        }
+
+        protected void removeRange(int from, int to) {
+                if (from == 0 && to == size) {
+                        clear();
+                } else {
+                        // Backward, the last elements of a chunk are removed in place
+                        for (int i = to - 1; i >= from; i--) {
+                                remove(i);
+                        }
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        private void addFirst(Object element) {
+                own();
+
+                Chunk chunk = chunks[first];
+
+                if (chunk.from > 0) {
+                        chunk = writable(first);
+                        starts[first]--;
+                } else {
+                        chunk = new Chunk(owner);
+                        chunk.from = CHUNK_SIZE;
+                        ensureHead();
+                        chunks[--first] = chunk;
+                        starts[first] = base - 1;
+                }
+
+                chunk.items[--chunk.from] = element;
+                chunk.count++;
+                base--;
+                size++;
+                modCount++;
+        }
+
+        /**
+         * Requests the directory index of the chunk holding the specified
+         * position.
+         */
+        private int locate(int position) {
+                int k = cursor;
+
+                if (k >= first && k < valid
+                                && position >= starts[k]
+                                && position < starts[k] + chunks[k].count) {
+                        return k;
+                }
+
+                validate();
+
+                int low = first;
+                int high = last - 1;
+
+                while (low < high) {
+                        int mid = (low + high + 1) >>> 1;
+
+                        if (starts[mid] <= position) {
+                                low = mid;
+                        } else {
+                                high = mid - 1;
+                        }
+                }
+
+                cursor = low;
+
+                return low;
+        }
+
+        /**
+         * Computes the positions of the chunks which are not known.
+         */
+        private void validate() {
+                // The first chunk always starts at index 0
+                if (valid < first + 1) {
+                        starts[first] = base;
+                        valid = first + 1;
+                }
+
+                for (int k = valid; k < last; k++) {
+                        starts[k] = starts[k - 1] + chunks[k - 1].count;
+                }
+
+                valid = last;
+        }
+
+        /**
+         * Forgets the positions of the chunks from the specified one.
+         */
+        private void invalidate(int k) {
+                if (valid > k) {
+                        valid = k;
+                }
+        }
+
+        /**
+         * Requests the chunk at the specified directory index, ready to be
+         * changed in place by this list.
+         */
+        private Chunk writable(int k) {
+                own();
+
+                Chunk chunk = chunks[k];
+
+                if (chunk.owner != owner) {
+                        chunk = chunk.copy(owner);
+                        chunks[k] = chunk;
+                }
+
+                return chunk;
+        }
+
+        /**
+         * Takes our own copy of a shared directory.
+         */
+        private void own() {
+                if (isShared) {
+                        chunks = chunks.clone();
+                        starts = starts.clone();
+                        isShared = false;
+                }
+        }
+
+        /**
+         * Splits the full chunk at the specified directory index in two halves.
+         */
+        private void split(int k) {
+                int index = k - first;
+
+                own();
+                ensureTail();
+                k = first + index;
+
+                Chunk chunk = chunks[k];
+                Chunk upper = new Chunk(owner);
+                int half = chunk.count >> 1;
+
+                System.arraycopy(chunk.items, chunk.from + half, upper.items, 0,
+                                chunk.count - half);
+                upper.count = chunk.count - half;
+
+                chunk = writable(k);
+                Arrays.fill(chunk.items, chunk.from + half, chunk.from
+                                + chunk.count, null);
+                chunk.count = half;
+
+                System.arraycopy(chunks, k + 1, chunks, k + 2, last - k - 1);
+                System.arraycopy(starts, k + 1, starts, k + 2, last - k - 1);
+                chunks[k + 1] = upper;
+                last++;
+                cursor = -1;
+                invalidate(k + 1);
+        }
+
+        /**
+         * Removes the empty chunk at the specified directory index.
+         */
+        private void drop(int k) {
+                if (k == first) {
+                        chunks[first++] = null;
+
+                        if (first == last) {
+                                // Start over in the middle of the directory
+                                first = last = valid = chunks.length >> 1;
+                        } else if (valid < first) {
+                                valid = first;
+                        }
+                } else {
+                        System.arraycopy(chunks, k + 1, chunks, k, last - k - 1);
+                        System.arraycopy(starts, k + 1, starts, k, last - k - 1);
+                        chunks[--last] = null;
+                        invalidate(k);
+                }
+
+                cursor = -1;
+        }
+
+        /**
+         * Makes room for a chunk after the last one.
+         */
+        private void ensureTail() {
+                if (last == chunks.length) {
+                        resize(first > chunks.length >> 1 ? chunks.length
+                                        : chunks.length << 1, first >> 1);
+                }
+        }
+
+        /**
+         * Makes room for a chunk before the first one.
+         */
+        private void ensureHead() {
+                if (first == 0) {
+                        int length = last - first < chunks.length >> 1 ? chunks.length
+                                        : chunks.length << 1;
+                        resize(length, (length - (last - first) + 1) >> 1);
+                }
+        }
+
+        /**
+         * Moves the chunks in use to a directory of the specified length,
+         * starting at the specified index.
+         */
+        private void resize(int length, int at) {
+                Chunk c[] = new Chunk[length];
+                int s[] = new int[length];
+                int n = last - first;
+
+                System.arraycopy(chunks, first, c, at, n);
+                System.arraycopy(starts, first, s, at, n);
+
+                valid += at - first;
+                cursor = -1;
+                first = at;
+                last = at + n;
+                chunks = c;
+                starts = s;
+        }
+
+        private void checkIndex(int index, int last) {
+                if (index < 0 || index > last) {
+                        throw new IndexOutOfBoundsException("Index: " + index
+                                        + ", Size: " + size);
+                }
+        }
+}
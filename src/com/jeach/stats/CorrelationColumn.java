@@ -0,0 +1,226 @@
+/*
+ * CorrelationColumn.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the correlations of the values of a primitive-backed data set into
+ * one <tt>int</tt> per value, so that no object is kept per value.
+ * <p>
+ * A correlation which is the boxed form of the value itself (as added by
+ * <tt>DataSet.addValue(Number)</tt>) is encoded by its type alone and boxed
+ * again when read, as an equal instance. Any other correlation is stored once
+ * in a dictionary and encoded by its position, so repeated correlations (such
+ * as the name of an end point) cost a single entry. Equal correlations are
+ * then all read back as the first instance stored.
+ * <p>
+ * When most correlations are distinct (such as request identifiers or
+ * timestamps), the dictionary would cost more than the correlations
+ * themselves: once <tt>SAMPLE</tt> correlations were looked up and more than
+ * half of them were new, the column stops deduplicating and keeps each
+ * correlation as a plain reference, read back as the instance given.
+ * <p>
+ * Code zero means no correlation. A column may be shared by copies of a list,
+ * so entries are never removed from it: a list whose values were removed
+ * takes a compacted column instead (see <tt>compact()</tt>). All operations
+ * are synchronized on the column instance.
+ */
+final class CorrelationColumn {
+
+        /** Code of values without correlation */
+        static final int NONE = 0;
+
+        private static final int INTEGER = -1;
+        private static final int LONG = -2;
+        private static final int SHORT = -3;
+        private static final int BYTE = -4;
+        private static final int FLOAT = -5;
+        private static final int DOUBLE = -6;
+
+        // Correlations looked up before deciding to keep deduplicating them
+        private static final int SAMPLE = 1024;
+
+        private final List entries = new ArrayList();
+        private Map codes = new HashMap(); // null once plain references
+
+        private int lookups = 0;
+
+        /**
+         * Encodes the correlation of the specified value.
+         *
+         * @param value
+         *            numerical value the correlation belongs to
+         * @param correlation
+         *            object to be encoded, possibly <tt>null</tt>
+         * @return the code of the correlation
+         */
+        synchronized int encode(double value, Object correlation) {
+                if (correlation == null) {
+                        return NONE;
+                }
+
+                int type = type(value, correlation);
+
+                if (type != NONE) {
+                        return type;
+                }
+
+                if (codes == null) {
+                        entries.add(correlation);
+                        return entries.size();
+                }
+
+                Integer code = (Integer) codes.get(correlation);
+
+                if (code == null) {
+                        entries.add(correlation);
+                        code = Integer.valueOf(entries.size());
+                        codes.put(correlation, code);
+
+                        if (++lookups >= SAMPLE && entries.size() * 2 > lookups) {
+                                // Mostly distinct, deduplicating only costs memory
+                                codes = null;
+                        }
+                } else {
+                        lookups++;
+                }
+
+                return code.intValue();
+        }
+
+        /**
+         * Decodes the correlation of the specified value.
+         *
+         * @param value
+         *            numerical value the correlation belongs to
+         * @param code
+         *            code of the correlation
+         * @return the correlation, <tt>null</tt> if none
+         */
+        synchronized Object decode(double value, int code) {
+                switch (code) {
+                case NONE:
+                        return null;
+                case INTEGER:
+                        return Integer.valueOf((int) value);
+                case LONG:
+                        return Long.valueOf((long) value);
+                case SHORT:
+                        return Short.valueOf((short) value);
+                case BYTE:
+                        return Byte.valueOf((byte) value);
+                case FLOAT:
+                        return Float.valueOf((float) value);
+                case DOUBLE:
+                        return Double.valueOf(value);
+                default:
+                        return entries.get(code - 1);
+                }
+        }
+
+        /**
+         * Requests the number of distinct correlations held in the dictionary.
+         *
+         * @return a count of correlations
+         */
+        synchronized int size() {
+                return entries.size();
+        }
+
+        /**
+         * Creates a column holding only the correlations of the specified codes,
+         * in the order they are first used, and rewrites the codes to index it.
+         * This column is left unchanged for the lists still sharing it.
+         *
+         * @param codes
+         *            codes of a list, rewritten in place
+         * @param size
+         *            number of codes used in the array
+         * @return a new column instance
+         */
+        synchronized CorrelationColumn compact(int codes[], int size) {
+                CorrelationColumn column = new CorrelationColumn();
+                int mapped[] = new int[entries.size() + 1];
+
+                if (this.codes == null) {
+                        column.codes = null;
+                }
+
+                for (int i = 0; i < size; i++) {
+                        int code = codes[i];
+
+                        if (code > NONE) {
+                                if (mapped[code] == NONE) {
+                                        Object correlation = entries.get(code - 1);
+
+                                        column.entries.add(correlation);
+                                        mapped[code] = column.entries.size();
+
+                                        if (column.codes != null) {
+                                                column.codes.put(correlation, Integer
+                                                                .valueOf(mapped[code]));
+                                        }
+                                }
+
+                                codes[i] = mapped[code];
+                        }
+                }
+
+                return column;
+        }
+
+        /**
+         * Requests the code of a correlation which can be rebuilt from the value
+         * alone, <tt>NONE</tt> if it cannot.
+         */
+        private static int type(double value, Object correlation) {
+                if (correlation instanceof Integer) {
+                        return ((Integer) correlation).intValue() == value ? INTEGER : NONE;
+                } else if (correlation instanceof Long) {
+                        long l = ((Long) correlation).longValue();
+                        return l == value && (long) value == l ? LONG : NONE;
+                } else if (correlation instanceof Short) {
+                        return ((Short) correlation).shortValue() == value ? SHORT : NONE;
+                } else if (correlation instanceof Byte) {
+                        return ((Byte) correlation).byteValue() == value ? BYTE : NONE;
+                } else if (correlation instanceof Float) {
+                        float f = ((Float) correlation).floatValue();
+                        return Float.floatToIntBits(f) == Float.floatToIntBits((float) value)
+                                        && f == value ? FLOAT : NONE;
+                } else if (correlation instanceof Double) {
+                        return Double.doubleToLongBits(((Double) correlation)
+                                        .doubleValue()) == Double.doubleToLongBits(value) ? DOUBLE
+                                        : NONE;
+                }
+
+                return NONE;
+        }
+}
@@ -0,0 +1,259 @@
+/*
+ * Covariance.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+/**
+ * The <code>Covariance</code> class holds the co-moments of a set of pairs of
+ * values: count, the mean of each side, the sum of squared distances to the
+ * mean of each side and the sum of the products of the distances of both
+ * sides. From these, the covariance and Pearson's correlation coefficient are
+ * obtained.
+ * <p>
+ * Co-moments are built in a single pass over two aligned data sets (see
+ * <tt>DataSet.getCovariance(DataSet)</tt>) using Welford's numerically stable
+ * updates, and can be merged with the formulas of Chan, Golub and LeVeque, so
+ * that long pairs of data sets can be split into ranges computed separately
+ * (for example by several threads) and combined.
+ * <p>
+ * All operations are synchronized on the instance.
+ */
+public class Covariance {
+
+        private long count = 0;
+        private double meanX = 0.0;
+        private double meanY = 0.0;
+        private double m2x = 0.0;
+        private double m2y = 0.0;
+        private double cxy = 0.0;
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Constructors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Constructs empty co-moments.
+         */
+        public Covariance() {
+                super();
+        }
+
+        /**
+         * Constructs the co-moments of the specified pairs of values.
+         *
+         * @param x
+         *            first value of each pair
+         * @param y
+         *            second value of each pair, as many as first values
+         */
+        public Covariance(double x[], double y[]) {
+                if (x != null && y != null) {
+                        if (x.length != y.length) {
+                                throw new IllegalArgumentException("Unaligned values: "
+                                                + x.length + " and " + y.length);
+                        }
+
+                        for (int i = 0; i < x.length; i++) {
+                                add(x[i], y[i]);
+                        }
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Update Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Adds one pair of values.
+         *
+         * @param x
+         *            first value of the pair
+         * @param y
+         *            second value of the pair
+         */
+        public synchronized void add(double x, double y) {
+                double n = ++count;
+                double dx = x - meanX;
+                double dy = y - meanY;
+
+                meanX += dx / n;
+                meanY += dy / n;
+
+                // Each product uses the distance before and after the update
+                m2x += dx * (x - meanX);
+                m2y += dy * (y - meanY);
+                cxy += dx * (y - meanY);
+        }
+
+        /**
+         * Merges the specified co-moments into these ones. Afterwards, they
+         * describe the union of both sets of pairs. The specified co-moments are
+         * not modified.
+         *
+         * @param covariance
+         *            co-moments to be merged
+         * @return this instance
+         */
+        public Covariance merge(Covariance covariance) {
+                if (covariance == null) {
+                        return this;
+                }
+
+                Covariance b = covariance.getCopy();
+
+                synchronized (this) {
+                        if (b.count == 0) {
+                                return this;
+                        }
+
+                        if (count == 0) {
+                                set(b);
+                                return this;
+                        }
+
+                        double na = count;
+                        double nb = b.count;
+                        double n = na + nb;
+                        double dx = b.meanX - meanX;
+                        double dy = b.meanY - meanY;
+                        double f = na * nb / n;
+
+                        m2x += b.m2x + dx * dx * f;
+                        m2y += b.m2y + dy * dy * f;
+                        cxy += b.cxy + dx * dy * f;
+                        meanX += dx * nb / n;
+                        meanY += dy * nb / n;
+                        count += b.count;
+                }
+
+                return this;
+        }
+
+        /**
+         * Creates a copy of these co-moments.
+         *
+         * @return a new instance
+         */
+        public synchronized Covariance getCopy() {
+                Covariance c = new Covariance();
+                c.set(this);
+                return c;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Statistics Section
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the number of pairs of values.
+         *
+         * @return a count of pairs
+         */
+        public synchronized long getCount() {
+                return count;
+        }
+
+        /**
+         * Retrieves the arithmetic mean of the first values.
+         *
+         * @return a value instance, <tt>null</tt> if there are no pairs
+         */
+        public synchronized Value getMeanX() {
+                return count > 0 ? new Value(meanX) : null;
+        }
+
+        /**
+         * Retrieves the arithmetic mean of the second values.
+         *
+         * @return a value instance, <tt>null</tt> if there are no pairs
+         */
+        public synchronized Value getMeanY() {
+                return count > 0 ? new Value(meanY) : null;
+        }
+
+        /**
+         * Retrieves the covariance of the pairs, dividing by the count like
+         * <tt>DataSet.getVariance()</tt>.
+         *
+         * @return a value instance, <tt>null</tt> if there are no pairs
+         */
+        public synchronized Value getCovariance() {
+                return count > 0 ? new Value(cxy / count) : null;
+        }
+
+        /**
+         * Retrieves the sample covariance of the pairs, dividing by the count
+         * less one.
+         *
+         * @return a value instance, <tt>null</tt> if there are less than two
+         *         pairs
+         */
+        public synchronized Value getSampleCovariance() {
+                return count > 1 ? new Value(cxy / (count - 1)) : null;
+        }
+
+        /**
+         * Retrieves Pearson's correlation coefficient of the pairs, between -1
+         * and 1.
+         *
+         * @return a value instance, <tt>null</tt> if there are no pairs or the
+         *         values of either side are all equal
+         */
+        public synchronized Value getCorrelation() {
+                if (count == 0 || m2x == 0.0 || m2y == 0.0) {
+                        return null;
+                }
+
+                double r = cxy / Math.sqrt(m2x * m2y);
+
+                // Rounding may take a perfect correlation slightly out of range
+                return new Value(Math.max(-1.0, Math.min(1.0, r)));
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        private void set(Covariance c) {
+                count = c.count;
+                meanX = c.meanX;
+                meanY = c.meanY;
+                m2x = c.m2x;
+                m2y = c.m2y;
+                cxy = c.cxy;
+        }
+
+        /**
+         * Returns a string representation of these co-moments.
+         *
+         * @return a string representation of the object.
+         */
+        public synchronized String toString() {
+                return "Covariance[count=" + count + ", meanX=" + meanX + ", meanY="
+                                + meanY + ", covariance=" + (count > 0 ? cxy / count : 0.0)
+                                + "]";
+        }
+}
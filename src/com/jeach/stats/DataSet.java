@@ -25,11 +25,16 @@
 
 package com.jeach.stats;
 
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import org.apache.commons.lang.builder.CompareToBuilder;
 import org.apache.commons.lang.builder.EqualsBuilder;
@@ -61,6 +66,22 @@ public class DataSet implements Comparable {
         /** Log4J library */
         private static final Logger log = Logger.getLogger(DataSet.class);
 
+        // Largest unsorted tail inserted one value at a time rather than merged
+        private static final int INSERTION_LIMIT = 8;
+
+        // Estimated heap bytes of a Value instance and of a reference to it
+        private static final int VALUE_SIZE = 32;
+        private static final int REFERENCE_SIZE = 4;
+
+        // Values shown by toString(), the others are only counted
+        private static final int PREVIEW_COUNT = 10;
+
+        private static final String LINE_SEPARATOR = System
+                        .getProperty("line.separator");
+
+        // Locks pairs of data sets whose identity hash codes collide
+        private static final Object TIE_LOCK = new Object();
+
         private static final String CORRELATE_PREFIX = "ds.";
         public static final String CORRELATE_FREQUENCY = CORRELATE_PREFIX
                         + "frequency";
@@ -71,7 +92,24 @@ public class DataSet implements Comparable {
         private boolean isSorted = false;
         private boolean isReversed = false;
         private boolean isDirty = false;
+        private int sortedCount = 0; // leading values known to be sorted
         private boolean isModified = false; // add/remove operations
+        private boolean isIndexed = false; // range queries keep a sorted index
+        private boolean isColumnar = false; // correlations kept in side columns
+        private boolean isChunked = false; // values kept in a chunked list
+        private Metrics metrics = null; // operations recorded when set
+
+        private HeavyHitters heavyHitters = null;
+        private RankTree rankTree = null;
+        private DoubleIntMap distinct = null; // values present, distinct on ingest
+
+        // Views (see getFirst, getLast, getSorted) share their storage until
+        // either side changes it
+        private boolean isShared = false; // values belong to another data set
+        private List source = null; // storage of the parent we are a view of
+        private List views = null; // weak references to our views
+        private List sortedCache = null;
+        private boolean isSortedCacheReversed = false;
 
         // ///////////////////////////////////////////////////////////////////////
         // Constructors
@@ -226,6 +264,66 @@ public class DataSet implements Comparable {
                 addValue(value);
         }
 
+        /**
+         * Creates a primitive-backed data set over the specified array, which is
+         * not copied and now belongs to the data set. Such a data set only stores
+         * numerical values, see <tt>DoubleList</tt>.
+         * 
+         * @param values
+         *            array of values
+         * @return a new data set instance
+         */
+        static DataSet wrap(double values[]) {
+                return wrap(values, values.length);
+        }
+
+        /**
+         * Creates a primitive-backed data set over the first 'size' elements of
+         * the specified array, which is not copied and now belongs to the data
+         * set.
+         * 
+         * @param values
+         *            array of values
+         * @param size
+         *            number of values used in the array
+         * @return a new data set instance
+         */
+        static DataSet wrap(double values[], int size) {
+                return wrap(new DoubleList(values, size));
+        }
+
+        /**
+         * Creates a data set reading the specified values, which belong to
+         * another owner and are never changed in place by it. The data set takes
+         * its own copy before it is changed.
+         * 
+         * @param values
+         *            list of values to be shared
+         * @return a new data set instance
+         */
+        static DataSet share(List values) {
+                DataSet ds = new DataSet();
+                ds.values = values;
+                ds.isShared = true;
+                return ds;
+        }
+
+        /**
+         * Creates a primitive-backed data set over the specified list, which now
+         * belongs to the data set. Correlations held by the list are kept, and
+         * the data set is columnar if there are any.
+         * 
+         * @param list
+         *            of values
+         * @return a new data set instance
+         */
+        static DataSet wrap(DoubleList list) {
+                DataSet ds = new DataSet();
+                ds.values = list;
+                ds.isColumnar = list.hasCorrelations();
+                return ds;
+        }
+
         // ///////////////////////////////////////////////////////////////////////
         // Add/Remove Functionality
         // ///////////////////////////////////////////////////////////////////////
@@ -373,6 +471,23 @@ public class DataSet implements Comparable {
                 add(new Value(value));
         }
 
+        /**
+         * Adds a new variable to the existing data set, along with an object
+         * correlated to it (such as the source of a sample).
+         * <p>
+         * A columnar data set (see <tt>setColumnar()</tt>) stores the
+         * correlation in a side column rather than in a <tt>Value</tt>
+         * instance; repeated correlations are then stored once.
+         * 
+         * @param value
+         *            is a new variable to add to the set.
+         * @param correlation
+         *            object correlated to the value, possibly <tt>null</tt>
+         */
+        public void addValue(double value, Object correlation) {
+                add(new Value(value), correlation);
+        }
+
         /**
          * Adds an array of new variables to the existing data set.
          * 
@@ -622,12 +737,61 @@ public class DataSet implements Comparable {
                 }
         }
 
+        /**
+         * Keeps the summaries maintained alongside the values (when used) up to
+         * date after a value was appended to this data set.
+         */
+        private void added(Value v) {
+                if (heavyHitters != null) {
+                        heavyHitters.offer(v.doubleValue());
+                }
+
+                if (rankTree != null) {
+                        rankTree.add(v.doubleValue());
+                }
+        }
+
+        /**
+         * Keeps the summaries maintained alongside the values (when used) up to
+         * date after a value was removed from this data set.
+         */
+        private void removed(Value v) {
+                if (v != null) {
+                        withdraw(v.doubleValue());
+
+                        // Values are only removed once maintained, which leaves them
+                        // sorted
+                        if (isSorted && sortedCount > 0) {
+                                sortedCount--;
+                        }
+                }
+        }
+
+        /**
+         * Removes the specified value from the summaries maintained alongside
+         * the values (when used).
+         */
+        private void withdraw(double value) {
+                if (heavyHitters != null) {
+                        heavyHitters.withdraw(value);
+                }
+
+                if (rankTree != null) {
+                        rankTree.remove(value);
+                }
+
+                if (distinct != null) {
+                        distinct.remove(value);
+                }
+        }
+
         /**
          * Will set the appropriate flags if an operation occurs which modifies the
          * internal content of this data set.
          */
         private synchronized void modified() {
                 isModified = true;
+                sortedCache = null;
 
                 if (isSorted) {
                         isDirty = true;
@@ -655,10 +819,15 @@ public class DataSet implements Comparable {
                 Value v = null;
 
                 if (values != null) {
+                        long start = started();
+
                         doMaintenance();
+                        beforeChange();
                         v = (Value) values.remove(0);
 
+                        removed(v);
                         modified(v);
+                        record(Metrics.REMOVE, 1, start);
                 }
 
                 log.debug("Removed first: " + v);
@@ -671,11 +840,16 @@ public class DataSet implements Comparable {
                 int count = 0;
 
                 if (values != null) {
+                        long start = started();
+
                         doMaintenance();
+                        beforeChange();
                         count = values.size();
                         v = (Value) values.remove(count - 1);
 
+                        removed(v);
                         modified(v);
+                        record(Metrics.REMOVE, 1, start);
                 }
 
                 log.debug("Removed last: " + v);
@@ -699,10 +873,15 @@ public class DataSet implements Comparable {
 
                 if (values != null) {
                         if (index >= 0 && index < values.size()) {
+                                long start = started();
+
                                 doMaintenance();
+                                beforeChange();
                                 v = (Value) values.remove(index);
+                                record(Metrics.REMOVE, 1, start);
                         }
 
+                        removed(v);
                         modified(v);
                 }
 
@@ -746,10 +925,18 @@ public class DataSet implements Comparable {
                 log.debug("Removing value: " + value);
 
                 if (value != null && values != null) {
+                        long start = started();
+
                         doMaintenance();
+                        beforeChange();
                         b = values.remove(value);
 
+                        if (b) {
+                                removed(value);
+                        }
+
                         modified(b);
+                        record(Metrics.REMOVE, b ? 1 : 0, start);
                 }
 
                 log.debug("-> Removed: " + b);
@@ -772,7 +959,8 @@ public class DataSet implements Comparable {
 
         /**
          * Removes the first instance of <tt>Value</tt> having the the specified
-         * numerical value.
+         * numerical value. See <tt>removeValues(double)</tt> for the equality
+         * used.
          * 
          * @param value
          *            to be searched
@@ -780,27 +968,27 @@ public class DataSet implements Comparable {
          *         none was removed
          */
         public synchronized Value removeValue(double value) {
-                Iterator it = null;
                 Value v = null;
 
                 log.debug("Removing value: " + value);
 
-                it = getIterator(); // This will doMaintenance()
-
-                while (it.hasNext()) {
-                        v = (Value) it.next();
+                if (values != null) {
+                        long start = started();
 
-                        if (v == null)
-                                continue;
+                        doMaintenance();
 
-                        if (v.doubleValue() == value) {
-                                it.remove();
-                                break;
+                        for (int i = 0; i < values.size(); i++) {
+                                if (equal(doubleAt(i), value)) {
+                                        beforeChange();
+                                        v = (Value) values.remove(i);
+                                        break;
+                                }
                         }
 
-                        v = null;
+                        record(Metrics.REMOVE, v != null ? 1 : 0, start);
                 }
 
+                removed(v);
                 modified(v);
 
                 log.debug("-> Removed: " + v);
@@ -823,42 +1011,236 @@ public class DataSet implements Comparable {
 
         /**
          * Removes all instances of <tt>Value</tt> having the the specified
-         * numerical value.
+         * numerical value. <tt>-0.0</tt> and <tt>0.0</tt> are the same value,
+         * and <tt>NaN</tt> matches every <tt>NaN</tt>: the same equality is used
+         * by every method looking up a single value (<tt>removeValue()</tt>,
+         * <tt>containsValue()</tt>, <tt>containsValues()</tt> and
+         * <tt>getFrequency()</tt>) and by <tt>removeValues(double[])</tt>.
          * 
          * @param value
          *            to be searched
          * @return a <tt>DataSet</tt> instance containing all values which were
          *         removed, <tt>null</tt> if none were removed
          */
-        public synchronized DataSet removeValues(double value) {
-                Iterator it = null;
-                Value v = null;
-                DataSet ds = null;
-
+        public DataSet removeValues(final double value) {
                 log.debug("Removing value: " + value);
 
-                it = getIterator(); // This will doMaintenance()
+                return removeValues(new Transform.Predicate() {
+                        public boolean test(double v) {
+                                return equal(v, value);
+                        }
+                });
+        }
 
-                while (it.hasNext()) {
-                        v = (Value) it.next();
-                        if (v == null)
-                                continue;
+        /**
+         * Removes all values lying within the specified range, bounds included.
+         * See <tt>removeValues(Transform.Predicate)</tt>.
+         * 
+         * @param low
+         *            lower bound, inclusive
+         * @param high
+         *            upper bound, inclusive
+         * @return a <tt>DataSet</tt> instance containing all values which were
+         *         removed, <tt>null</tt> if none were removed
+         */
+        public DataSet removeValues(final double low, final double high) {
+                log.debug("Removing values from " + low + " to " + high);
 
-                        if (v.doubleValue() == value) {
-                                if (ds == null)
-                                        ds = new DataSet();
-                                it.remove();
-                                ds.addValue(v);
+                return removeValues(new Transform.Predicate() {
+                        public boolean test(double value) {
+                                return value >= low && value <= high;
                         }
+                });
+        }
+
+        /**
+         * Removes all values numerically equal to any of the specified values,
+         * which are looked up by hashing rather than compared one by one. See
+         * <tt>removeValues(double)</tt> for the equality used, and
+         * <tt>removeValues(Transform.Predicate)</tt>.
+         * 
+         * @param removed
+         *            values to be removed, possibly <tt>null</tt>
+         * @return a <tt>DataSet</tt> instance containing all values which were
+         *         removed, <tt>null</tt> if none were removed
+         */
+        public DataSet removeValues(double removed[]) {
+                if (removed == null) {
+                        return null;
                 }
 
-                modified(ds);
+                final DoubleIntMap set = new DoubleIntMap(removed.length);
+
+                for (int i = 0; i < removed.length; i++) {
+                        set.put(removed[i], 1);
+                }
+
+                return removeValues(new Transform.Predicate() {
+                        public boolean test(double value) {
+                                return set.get(value) != DoubleIntMap.MISSING;
+                        }
+                });
+        }
+
+        /**
+         * Removes all values satisfying the specified condition.
+         * <p>
+         * The values kept are compacted in a single pass, each of them being
+         * moved at most once, and the order of the values (sorted or not) is
+         * unchanged. The removed values are returned in their original order, in
+         * storage of the same kind as ours: a primitive-backed data set returns
+         * a primitive-backed data set (along with the correlations), otherwise
+         * the <tt>Value</tt> instances removed are returned.
+         * 
+         * @param predicate
+         *            condition satisfied by the values to be removed
+         * @return a <tt>DataSet</tt> instance containing all values which were
+         *         removed, <tt>null</tt> if none were removed
+         */
+        public synchronized DataSet removeValues(Transform.Predicate predicate) {
+                DataSet ds = null;
+                List removed = isPrimitive(values) ? (List) new DoubleList(0)
+                                : new ArrayList();
+
+                if (removeAll(predicate, removed) > 0) {
+                        if (removed instanceof DoubleList) {
+                                ds = wrap((DoubleList) removed);
+                        } else {
+                                ds = new DataSet();
+                                ds.values = removed;
+                        }
+
+                        if (values instanceof ReversedList) {
+                                // Collected from our storage, read backward like it
+                                ds.values = new ReversedList(ds.values);
+                        }
+
+                        if (isSorted) {
+                                ds.isSorted = true;
+                                ds.isReversed = isReversed;
+                                ds.sortedCount = removed.size();
+                        }
+                }
 
                 log.debug("-> Removed: " + ds);
 
                 return ds;
         }
 
+        /**
+         * Removes all values satisfying the specified condition, like
+         * <tt>removeValues(Transform.Predicate)</tt>, without collecting them.
+         * 
+         * @param predicate
+         *            condition satisfied by the values to be removed
+         * @return the count of values removed
+         */
+        public synchronized int discardValues(Transform.Predicate predicate) {
+                int count = removeAll(predicate, null);
+
+                log.debug("Discarded " + count + " value(s)");
+
+                return count;
+        }
+
+        /**
+         * Internal method removing the values satisfying the specified condition
+         * in a single pass over our storage, and optionally collecting them in
+         * storage order. Each value is tested once. A primitive list is
+         * compacted in place along with its correlation codes, any other list
+         * by moving each value kept once and truncating the tail.
+         * 
+         * @param predicate
+         *            condition satisfied by the values to be removed
+         * @param removed
+         *            list receiving the values removed, a <tt>DoubleList</tt>
+         *            for primitive storage, <tt>null</tt> if not needed
+         * @return the count of values removed
+         */
+        private int removeAll(Transform.Predicate predicate, List removed) {
+                if (predicate == null) {
+                        throw new IllegalArgumentException("Predicate is null");
+                }
+
+                int n = getCount();
+                int first = 0;
+                long start = started();
+
+                if (n == 0) {
+                        return 0;
+                }
+
+                doMaintenance();
+
+                // Nothing is copied or moved unless a value is to be removed
+                while (first < n && !predicate.test(doubleAt(storage(values), first))) {
+                        first++;
+                }
+
+                if (first == n) {
+                        record(Metrics.REMOVE, 0, start);
+                        return 0;
+                }
+
+                beforeChange();
+
+                if (heavyHitters != null || rankTree != null || distinct != null) {
+                        final Transform.Predicate condition = predicate;
+
+                        withdraw(doubleAt(storage(values), first));
+
+                        predicate = new Transform.Predicate() {
+                                public boolean test(double value) {
+                                        if (condition.test(value)) {
+                                                withdraw(value);
+                                                return true;
+                                        }
+
+                                        return false;
+                                }
+                        };
+                }
+
+                List stored = storage(values);
+                int count;
+
+                if (stored instanceof DoubleList) {
+                        count = ((DoubleList) stored).removeIf(predicate, first,
+                                        (DoubleList) removed);
+                } else {
+                        int kept = first;
+
+                        if (removed != null) {
+                                removed.add(stored.get(first));
+                        }
+
+                        for (int i = first + 1; i < n; i++) {
+                                Object v = stored.get(i);
+
+                                if (predicate.test(((Value) v).doubleValue())) {
+                                        if (removed != null) {
+                                                removed.add(v);
+                                        }
+                                } else {
+                                        stored.set(kept++, v);
+                                }
+                        }
+
+                        count = n - kept;
+                        stored.subList(kept, n).clear();
+                }
+
+                // Values were maintained and stay sorted
+                if (isSorted) {
+                        sortedCount = Math.max(sortedCount - count, 0);
+                }
+
+                modified();
+                record(Metrics.REMOVE, count, start);
+
+                return count;
+        }
+
         // ///////////////////////////////////////////////////////////////////////
         // Contains Functionality
         // ///////////////////////////////////////////////////////////////////////
@@ -942,7 +1324,7 @@ public class DataSet implements Comparable {
                         if (v == null)
                                 continue;
 
-                        if (v.doubleValue() == value) {
+                        if (equal(v.doubleValue(), value)) {
                                 break;
                         }
 
@@ -970,6 +1352,9 @@ public class DataSet implements Comparable {
         /**
          * Requests all <tt>Value</tt> instances contained within this dataset
          * having the specified numerical value.
+         * <p>
+         * The values are located by binary search when a sorted index is
+         * available, see <tt>setIndexed()</tt>.
          * 
          * @param value
          *            to be searched
@@ -977,27 +1362,12 @@ public class DataSet implements Comparable {
          *         found, <tt>null</tt> otherwise
          */
         public synchronized DataSet containsValues(double value) {
-                Iterator it = null;
-                Value v = null;
                 DataSet ds = null;
 
                 log.debug("Contains values: " + value);
 
-                it = getIterator(); // This will doMaintenance()
-
-                while (it.hasNext()) {
-                        v = (Value) it.next();
-
-                        if (v == null)
-                                continue;
-
-                        if (v.doubleValue() == value) {
-                                if (ds == null)
-                                        ds = new DataSet();
-
-                                ds.addValue(v);
-                        }
-                }
+                ds = Double.isNaN(value) ? subsetNaN() : subset(value, true, value,
+                                true);
 
                 log.debug("-> Found: " + ds);
 
@@ -1005,103 +1375,1088 @@ public class DataSet implements Comparable {
         }
 
         // ///////////////////////////////////////////////////////////////////////
-        // Ordering/Sorting Functionality
+        // Range Functionality
         // ///////////////////////////////////////////////////////////////////////
 
         /**
-         * Requests wether this data set is sorted in reverse order. Note that if
-         * the data-set is not sorted the reversed state is of no consequence.
+         * Requests to know if the range queries of this data set maintain a
+         * sorted index.
          * 
-         * @return true if sorted in reverse order, false otherwise.
+         * @return true if they do, false otherwise
          */
-        public synchronized boolean isReversed() {
-                return isReversed;
+        public synchronized boolean isIndexed() {
+                return isIndexed;
         }
 
         /**
-         * Will reverse the sort order of this data-set. This method does not toggle
-         * the reverse state but rather implicitly sets it to a reverse state. In
-         * other words, multiple invocations of this method has no effect.
+         * Sets wether the range queries (<tt>getLessThan()</tt>,
+         * <tt>getGreaterThan()</tt>, <tt>getBetween()</tt>, ...) of this data set
+         * maintain a sorted index of the values.
          * <p>
-         * This is the same as calling <tt>setReversed(true)</tt>.
+         * The range queries always use binary search when a sorted index is
+         * already available: when this data set is itself sorted, or when its
+         * sorted values were computed since the last modification (see
+         * <tt>getSorted()</tt>, <tt>getMedian()</tt>, ...). Otherwise they scan
+         * all values, unless this data set is indexed, in which case the sorted
+         * index is built by the first query following a modification.
+         * <p>
+         * An indexed data set is worth it when several range queries are made
+         * between modifications; counting the values within a range is then done
+         * in logarithmic time.
          * 
-         * @param reversed
-         *            <tt>true</tt> if reverse order is desired, <tt>false</tt>
-         *            otherwise.
+         * @param indexed
+         *            <tt>true</tt> to maintain a sorted index, <tt>false</tt>
+         *            otherwise
          */
-        public synchronized void setReversed() {
-                setReversed(true);
+        public synchronized void setIndexed(boolean indexed) {
+                isIndexed = indexed;
         }
 
         /**
-         * Will reverse the sort order for this data-set.
+         * Requests all values strictly smaller than the specified value.
+         * <p>
+         * When answered from a sorted index, the values are in sorted order and
+         * the new data set is a read-only view sharing the values of this data
+         * set. Otherwise they are in the order of this data set.
          * 
-         * @param reversed
-         *            <tt>true</tt> if reverse order is desired, <tt>false</tt>
-         *            otherwise.
+         * @param value
+         *            upper bound, exclusive
+         * @return an instance of a <tt>DataSet</tt> if one or more values were
+         *         found, <tt>null</tt> otherwise
          */
-        public synchronized void setReversed(boolean reversed) {
-                if (isReversed != reversed) {
-                        isReversed = reversed;
-                        modified();
-                }
+        public DataSet getLessThan(double value) {
+                return subset(Double.NEGATIVE_INFINITY, true, value, false);
         }
 
         /**
-         * Requests to know if this data set is sorted.
+         * Requests all values strictly larger than the specified value. See
+         * <tt>getLessThan()</tt>.
          * 
-         * @return true if it is, false otherwise
+         * @param value
+         *            lower bound, exclusive
+         * @return an instance of a <tt>DataSet</tt> if one or more values were
+         *         found, <tt>null</tt> otherwise
          */
-        public synchronized boolean isSorted() {
-                return isSorted;
+        public DataSet getGreaterThan(double value) {
+                return subset(value, false, Double.POSITIVE_INFINITY, true);
         }
 
-        public synchronized void setSorted() {
-                setSorted(true);
+        /**
+         * Requests all values within the specified bounds, both inclusive. See
+         * <tt>getLessThan()</tt>.
+         * 
+         * @param low
+         *            lower bound, inclusive
+         * @param high
+         *            upper bound, inclusive
+         * @return an instance of a <tt>DataSet</tt> if one or more values were
+         *         found, <tt>null</tt> otherwise
+         */
+        public DataSet getBetween(double low, double high) {
+                return subset(low, true, high, true);
         }
 
         /**
-         * Sets this data-set in sorted or unsorted order. When sorted is requested,
-         * the data set will remain sorted at all times.
-         * <p>
-         * It is important to note that once the sort mode has been enabled, the
-         * initial order of the data-set will be preserved and will not be lost.
-         * <p>
-         * The internal 'reverse' state will be preserved when invoking this method
-         * and is like invoking <tt>setSorted(boolean, isReversed())</tt>.
+         * Requests all values strictly larger than zero. See
+         * <tt>getLessThan()</tt>.
          * 
-         * @param sorted
-         *            <tt>true</tt> will sort the data-set, <tt>false</tt> will not
-         *            sorted the data-set
+         * @return an instance of a <tt>DataSet</tt> if one or more values were
+         *         found, <tt>null</tt> otherwise
+         */
+        public DataSet getPositives() {
+                return getGreaterThan(0.0);
+        }
+
+        /**
+         * Requests all values strictly smaller than zero. See
+         * <tt>getLessThan()</tt>.
+         * 
+         * @return an instance of a <tt>DataSet</tt> if one or more values were
+         *         found, <tt>null</tt> otherwise
+         */
+        public DataSet getNegatives() {
+                return getLessThan(0.0);
+        }
+
+        /**
+         * Counts the values strictly smaller than the specified value, in
+         * logarithmic time when a sorted index is available (see
+         * <tt>setIndexed()</tt>).
+         * 
+         * @param value
+         *            upper bound, exclusive
+         * @return a count of values
+         */
+        public int getCountLessThan(double value) {
+                return count(Double.NEGATIVE_INFINITY, true, value, false);
+        }
+
+        /**
+         * Counts the values strictly larger than the specified value. See
+         * <tt>getCountLessThan()</tt>.
+         * 
+         * @param value
+         *            lower bound, exclusive
+         * @return a count of values
+         */
+        public int getCountGreaterThan(double value) {
+                return count(value, false, Double.POSITIVE_INFINITY, true);
+        }
+
+        /**
+         * Counts the values within the specified bounds, both inclusive. See
+         * <tt>getCountLessThan()</tt>.
+         * 
+         * @param low
+         *            lower bound, inclusive
+         * @param high
+         *            upper bound, inclusive
+         * @return a count of values
+         */
+        public int getCountBetween(double low, double high) {
+                return count(low, true, high, true);
+        }
+
+        /**
+         * Internal method creating the subset of the values within the specified
+         * bounds, using the sorted index when there is one.
+         */
+        private synchronized DataSet subset(double low, boolean lowInclusive,
+                        double high, boolean highInclusive) {
+                DataSet ds = null;
+                List index = getIndex();
+
+                if (index != null) {
+                        int range[] = locate(index, low, lowInclusive, high,
+                                        highInclusive);
+
+                        if (range[0] < range[1]) {
+                                if (index == values) {
+                                        ds = view(range[0], range[1]);
+                                } else {
+                                        // The index is never changed in place
+                                        ds = new DataSet();
+                                        ds.values = index.subList(range[0], range[1]);
+                                        ds.isShared = true;
+                                }
+
+                                ds.isSorted = true;
+                                ds.isReversed = isIndexReversed(index);
+                                ds.sortedCount = range[1] - range[0];
+                        }
+                } else if (values != null) {
+                        int n = values.size();
+
+                        if (values instanceof DoubleList) {
+                                DoubleList stored = (DoubleList) values;
+                                DoubleList list = new DoubleList(0);
+
+                                for (int i = 0; i < n; i++) {
+                                        double x = stored.getDouble(i);
+
+                                        if (within(x, low, lowInclusive, high, highInclusive)) {
+                                                list.addDouble(x, stored.getCorrelation(i));
+                                        }
+                                }
+
+                                if (list.size() > 0) {
+                                        ds = wrap(list);
+                                }
+                        } else {
+                                List list = new ArrayList();
+
+                                for (int i = 0; i < n; i++) {
+                                        Value v = (Value) values.get(i);
+
+                                        if (v != null
+                                                        && within(v.doubleValue(), low, lowInclusive, high,
+                                                                        highInclusive)) {
+                                                list.add(v);
+                                        }
+                                }
+
+                                if (list.size() > 0) {
+                                        ds = new DataSet();
+                                        ds.values = list;
+                                }
+                        }
+                }
+
+                return ds;
+        }
+
+        /**
+         * Internal method creating the subset of the <tt>NaN</tt> values, which
+         * lie within no bounds.
+         */
+        private synchronized DataSet subsetNaN() {
+                DataSet ds = null;
+
+                if (values != null) {
+                        doMaintenance();
+
+                        int n = values.size();
+
+                        if (values instanceof DoubleList) {
+                                DoubleList stored = (DoubleList) values;
+                                DoubleList list = new DoubleList(0);
+
+                                for (int i = 0; i < n; i++) {
+                                        double x = stored.getDouble(i);
+
+                                        if (Double.isNaN(x)) {
+                                                list.addDouble(x, stored.getCorrelation(i));
+                                        }
+                                }
+
+                                if (list.size() > 0) {
+                                        ds = wrap(list);
+                                }
+                        } else {
+                                List list = new ArrayList();
+
+                                for (int i = 0; i < n; i++) {
+                                        Value v = (Value) values.get(i);
+
+                                        if (v != null && Double.isNaN(v.doubleValue())) {
+                                                list.add(v);
+                                        }
+                                }
+
+                                if (list.size() > 0) {
+                                        ds = new DataSet();
+                                        ds.values = list;
+                                }
+                        }
+                }
+
+                return ds;
+        }
+
+        /**
+         * Internal method counting the values within the specified bounds.
+         */
+        private synchronized int count(double low, boolean lowInclusive,
+                        double high, boolean highInclusive) {
+                int count = 0;
+                List index = getIndex();
+
+                if (index != null) {
+                        int range[] = locate(index, low, lowInclusive, high,
+                                        highInclusive);
+
+                        count = Math.max(range[1] - range[0], 0);
+                } else if (values != null) {
+                        int n = values.size();
+                        boolean primitive = values instanceof DoubleList;
+
+                        for (int i = 0; i < n; i++) {
+                                if ((primitive || values.get(i) != null)
+                                                && within(doubleAt(i), low, lowInclusive, high,
+                                                                highInclusive)) {
+                                        count++;
+                                }
+                        }
+                }
+
+                return count;
+        }
+
+        /**
+         * Internal method comparing two values as every single value lookup
+         * does: <tt>-0.0</tt> equals <tt>0.0</tt> and <tt>NaN</tt> equals
+         * <tt>NaN</tt>.
+         */
+        private static boolean equal(double x, double value) {
+                return x == value || (x != x && value != value);
+        }
+
+        private static boolean within(double x, double low, boolean lowInclusive,
+                        double high, boolean highInclusive) {
+                return (lowInclusive ? x >= low : x > low)
+                                && (highInclusive ? x <= high : x < high);
+        }
+
+        /**
+         * Internal method requesting the sorted index of our values: our own
+         * storage when sorted, else the sorted values computed for
+         * <tt>getSorted()</tt>. Returns <tt>null</tt> if there is none and this
+         * data set is not indexed.
+         */
+        private List getIndex() {
+                doMaintenance();
+
+                if (values == null) {
+                        return null;
+                }
+
+                if (isSorted) {
+                        return values;
+                }
+
+                if (sortedCache == null && isIndexed) {
+                        getSorted(isReversed);
+                }
+
+                return sortedCache;
+        }
+
+        private boolean isIndexReversed(List index) {
+                return index == values ? isReversed : isSortedCacheReversed;
+        }
+
+        /**
+         * Internal method locating, by binary search, the positions within the
+         * specified sorted index of the values within the specified bounds.
+         * 
+         * @return the first position, inclusive, and the last, exclusive
+         */
+        private int[] locate(List index, double low, boolean lowInclusive,
+                        double high, boolean highInclusive) {
+                boolean reversed = isIndexReversed(index);
+                int from = countBelow(index, reversed, low, !lowInclusive);
+                int to = countBelow(index, reversed, high, highInclusive);
+
+                if (reversed) {
+                        // Ascending ranks are mirrored, NaN values come first
+                        int n = index.size();
+                        return new int[] { n - to, n - from };
+                }
+
+                return new int[] { from, to };
+        }
+
+        /**
+         * Internal method counting, by binary search, the values of a sorted
+         * index smaller than (or equal to if inclusive) the specified value.
+         * Not-a-number values are sorted above all others and never counted.
+         */
+        private static int countBelow(List index, boolean reversed, double value,
+                        boolean inclusive) {
+                int low = 0;
+                int high = index.size();
+
+                // Find the first position where below() is false (ascending) or
+                // true (descending)
+                while (low < high) {
+                        int mid = (low + high) >>> 1;
+                        double x = doubleAt(index, mid);
+                        boolean below = inclusive ? x <= value : x < value;
+
+                        if (below != reversed) {
+                                low = mid + 1;
+                        } else {
+                                high = mid;
+                        }
+                }
+
+                return reversed ? index.size() - low : low;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Ordering/Sorting Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests wether this data set is sorted in reverse order. Note that if
+         * the data-set is not sorted the reversed state is of no consequence.
+         * 
+         * @return true if sorted in reverse order, false otherwise.
+         */
+        public synchronized boolean isReversed() {
+                return isReversed;
+        }
+
+        /**
+         * Will reverse the sort order of this data-set. This method does not toggle
+         * the reverse state but rather implicitly sets it to a reverse state. In
+         * other words, multiple invocations of this method has no effect.
+         * <p>
+         * This is the same as calling <tt>setReversed(true)</tt>.
+         * 
+         * @param reversed
+         *            <tt>true</tt> if reverse order is desired, <tt>false</tt>
+         *            otherwise.
+         */
+        public synchronized void setReversed() {
+                setReversed(true);
+        }
+
+        /**
+         * Will reverse the sort order for this data-set.
+         * <p>
+         * Reversing a sorted data set takes constant time: its values are not
+         * moved but read backward from then on. The first value added afterwards
+         * moves them once into the order they are read, so that values keep
+         * being appended in constant time.
+         * 
+         * @param reversed
+         *            <tt>true</tt> if reverse order is desired, <tt>false</tt>
+         *            otherwise.
+         */
+        public synchronized void setReversed(boolean reversed) {
+                if (isReversed != reversed) {
+                        // Unless all values are to be sorted anyway, bring them in
+                        // order and switch the direction they are read in
+                        if (isSorted && values != null && !(isDirty && sortedCount == 0)) {
+                                doMaintenance();
+
+                                values = values instanceof ReversedList ? ((ReversedList) values)
+                                                .getList()
+                                                : new ReversedList(values);
+                        }
+
+                        // The order changed, the values did not: no need to sort
+                        // them again or to drop the sorted cache
+                        isReversed = reversed;
+                        isModified = true;
+                }
+        }
+
+        /**
+         * Requests to know if this data set is sorted.
+         * 
+         * @return true if it is, false otherwise
+         */
+        public synchronized boolean isSorted() {
+                return isSorted;
+        }
+
+        public synchronized void setSorted() {
+                setSorted(true);
+        }
+
+        /**
+         * Sets this data-set in sorted or unsorted order. When sorted is requested,
+         * the data set will remain sorted at all times.
+         * <p>
+         * It is important to note that once the sort mode has been enabled, the
+         * initial order of the data-set will be preserved and will not be lost.
+         * <p>
+         * The internal 'reverse' state will be preserved when invoking this method
+         * and is like invoking <tt>setSorted(boolean, isReversed())</tt>.
+         * 
+         * @param sorted
+         *            <tt>true</tt> will sort the data-set, <tt>false</tt> will not
+         *            sorted the data-set
+         */
+        public synchronized void setSorted(boolean sorted) {
+                setSorted(sorted, isReversed);
+        }
+
+        /**
+         * Sets this data-set in sorted or unsorted order. When sorted is requested,
+         * the data set will remain sorted at all times.
+         * <p>
+         * It is important to note that once the sort mode has been enabled, the
+         * initial order of the data-set will be preserved and will not be lost.
+         * <p>
+         * The internal 'reverse' state will be preserved when invoking this method
+         * and is like invoking <tt>setSorted(boolean, isReversed())</tt>.
+         * 
+         * @param sorted
+         *            <tt>true</tt> will sort the data-set, <tt>false</tt> will not
+         *            sorted the data-set
+         * @param reversed
+         *            indicates that the sort order will be reversed
+         */
+        public synchronized void setSorted(boolean sorted, boolean reversed) {
+                if (isSorted != sorted) {
+                        isSorted = sorted;
+                        sortedCount = 0;
+                        isDirty = true;
+                        isModified = true;
+                }
+
+                setReversed(reversed);
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Heavy Hitters Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the heavy-hitters sketch maintained by this data set.
+         * 
+         * @return a sketch instance, <tt>null</tt> if none is maintained
+         */
+        public synchronized HeavyHitters getHeavyHitters() {
+                return heavyHitters;
+        }
+
+        /**
+         * Requests that this data set maintains a heavy-hitters sketch monitoring
+         * at most the specified number of distinct values. The sketch is seeded
+         * with the values currently contained in this data set and then kept up
+         * to date as values are added and removed.
+         * <p>
+         * While a sketch is maintained, <tt>getMode()</tt>, <tt>getMode(int)</tt>
+         * and <tt>getFrequency()</tt> are served from it rather than by counting
+         * every value, which makes them approximate. Specifying a capacity of
+         * zero disables the sketch.
+         * <p>
+         * Sketches of several data sets (for example shards of the same stream)
+         * can be combined with <tt>HeavyHitters.merge()</tt>.
+         * 
+         * @param capacity
+         *            maximum number of distinct values to be monitored
+         */
+        public synchronized void setHeavyHitters(int capacity) {
+                if (capacity <= 0) {
+                        heavyHitters = null;
+                        return;
+                }
+
+                heavyHitters = new HeavyHitters(capacity);
+
+                if (values != null) {
+                        for (int i = 0; i < values.size(); i++) {
+                                Value v = (Value) values.get(i);
+
+                                if (v != null) {
+                                        heavyHitters.offer(v.doubleValue());
+                                }
+                        }
+                }
+
+                log.debug("Maintaining heavy hitters: " + heavyHitters);
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Columnar Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests to know if this data set stores its values and their
+         * correlations in primitive columns.
+         * 
+         * @return true if it does, false otherwise
+         */
+        public synchronized boolean isColumnar() {
+                return isColumnar;
+        }
+
+        /**
+         * Sets wether this data set stores its values and their correlations in
+         * primitive columns rather than as <tt>Value</tt> instances.
+         * <p>
+         * A columnar data set keeps its numerical values in a <tt>double</tt>
+         * array, and the correlation of each value as an <tt>int</tt> code in a
+         * parallel array: a boxed number equal to its value (as kept by
+         * <tt>addValue(Number)</tt>) is rebuilt from the value, and any other
+         * object is stored once in a dictionary, however often it is repeated.
+         * The codes move along with the values when they are sorted, reversed,
+         * removed or copied. The <tt>Value</tt> instances read from the data set
+         * are created on demand, with their correlation.
+         * <p>
+         * The correlations of <tt>Value</tt> instances already stored cannot be
+         * moved to columns, so this must be enabled before adding values.
+         * Disabling it turns the columns back into <tt>Value</tt> instances.
+         * 
+         * @param columnar
+         *            <tt>true</tt> for columnar storage, <tt>false</tt> otherwise
+         * @throws IllegalStateException
+         *             if enabled while <tt>Value</tt> instances are stored, or on
+         *             a chunked data set
+         */
+        public synchronized void setColumnar(boolean columnar) {
+                if (columnar == isColumnar) {
+                        return;
+                }
+
+                if (columnar && isChunked) {
+                        throw new IllegalStateException(
+                                        "Chunked data sets cannot be made columnar");
+                }
+
+                if (getCount() > 0) {
+                        if (columnar && !isPrimitive(values)) {
+                                throw new IllegalStateException(
+                                                "Values already stored, cannot be made columnar");
+                        }
+
+                        if (!columnar && isPrimitive(values)) {
+                                doMaintenance();
+                                detachViews();
+                                values = new ArrayList(values);
+                                isShared = false;
+                                source = null;
+                        }
+                }
+
+                isColumnar = columnar;
+        }
+
+        /**
+         * Requests the object correlated to the value at the specified index,
+         * as given to <tt>addValue(double, Object)</tt> or
+         * <tt>addValue(Number)</tt>.
+         * <p>
+         * Correlations can only be read back from primitive-backed data sets
+         * (such as columnar ones); the correlations of <tt>Value</tt> instances
+         * stay with the instances.
+         * <p>
+         * The correlation returned is equal to the one given, but not always the
+         * same instance: a boxed number equal to its value is boxed again, and
+         * while repeated correlations are stored once, each is returned as the
+         * first equal instance stored (see <tt>setColumnar()</tt>).
+         * 
+         * @param index
+         *            of the value
+         * @return the correlation, <tt>null</tt> if none, if the index is out of
+         *         range or if the data set is not primitive-backed
+         */
+        public synchronized Object getCorrelationAt(int index) {
+                if (index < 0 || index >= getCount()) {
+                        return null;
+                }
+
+                doMaintenance();
+
+                return correlationAt(values, index);
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Chunked Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests to know if this data set stores its values in a chunked list.
+         * 
+         * @return true if it does, false otherwise
+         */
+        public synchronized boolean isChunked() {
+                return isChunked;
+        }
+
+        /**
+         * Sets wether this data set stores its values in a chunked list (see
+         * <tt>ChunkedList</tt>) rather than in a single array, for data sets
+         * used as first-in first-out buffers.
+         * <p>
+         * A chunked data set removes its first and last values in constant time,
+         * whether or not it is sorted or reversed, and any other value by moving
+         * at most half a chunk; a single array moves all the values behind the
+         * one removed. Reading a value by index costs a binary search over the
+         * chunks, skipped when reading sequentially. The order and sorting of
+         * the values are not changed.
+         * <p>
+         * A columnar data set keeps its values in primitive columns and cannot
+         * be chunked. The shallow copies (see <tt>getCopy()</tt>) of a chunked
+         * data set share its chunks rather than all its values.
+         * 
+         * @param chunked
+         *            <tt>true</tt> for chunked storage, <tt>false</tt> otherwise
+         * @throws IllegalStateException
+         *             if enabled on a columnar data set
+         */
+        public synchronized void setChunked(boolean chunked) {
+                if (chunked == isChunked) {
+                        return;
+                }
+
+                if (chunked && isColumnar) {
+                        throw new IllegalStateException(
+                                        "Columnar data sets cannot be chunked");
+                }
+
+                if (getCount() > 0
+                                && chunked != (storage(values) instanceof ChunkedList)) {
+                        doMaintenance();
+                        detachViews();
+
+                        List stored = storage(values);
+                        List list = chunked ? (List) new ChunkedList(stored)
+                                        : new ArrayList(stored);
+
+                        values = values instanceof ReversedList ? (List) new ReversedList(list)
+                                        : list;
+                        isShared = false;
+                        source = null;
+                }
+
+                isChunked = chunked;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Metrics Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the metrics recording the operations of this data set.
+         * 
+         * @return a metrics instance, <tt>null</tt> if none
+         */
+        public synchronized Metrics getMetrics() {
+                return metrics;
+        }
+
+        /**
+         * Sets the metrics recording the operations of this data set (see
+         * <tt>Metrics</tt>): each value added or removed, each sort of new
+         * values, each use of the sorted values, each copy and each statistic
+         * computed is reported with its count of values and its duration.
+         * <p>
+         * Instrumentation is disabled by default, and costs two tests per
+         * operation while disabled (one when it starts, one when it ends). Once
+         * enabled, each operation reads the system timer twice and invokes the
+         * metrics while holding our lock.
+         * 
+         * @param metrics
+         *            recording our operations, <tt>null</tt> to disable
+         */
+        public synchronized void setMetrics(Metrics metrics) {
+                this.metrics = metrics;
+        }
+
+        /**
+         * Estimates the heap bytes used by the values of this data set: the
+         * arrays of a primitive-backed data set, or the <tt>Value</tt>
+         * instances and the references to them. Storage shared with other data
+         * sets (views and copies) counts for each of them, and the correlations
+         * of <tt>Value</tt> instances are not counted.
+         * 
+         * @return an estimate in bytes
+         */
+        public synchronized long getMemoryEstimate() {
+                List stored = storage(values);
+
+                if (stored == null) {
+                        return 0L;
+                } else if (stored instanceof DoubleList) {
+                        return ((DoubleList) stored).memory();
+                } else if (stored instanceof DoubleList.Range) {
+                        return 8L * stored.size();
+                }
+
+                return (long) (VALUE_SIZE + REFERENCE_SIZE) * stored.size();
+        }
+
+        /**
+         * Requests the time an operation starts at, when it is recorded. Like
+         * <tt>record()</tt>, only invoked while holding our lock.
+         */
+        private long started() {
+                return metrics != null ? System.nanoTime() : 0L;
+        }
+
+        /**
+         * Records an operation which started at the specified time, when
+         * recorded.
+         */
+        private void record(String operation, int count, long start) {
+                if (metrics != null) {
+                        metrics.record(operation, count, System.nanoTime() - start);
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Distinct Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests to know if this data set only accepts values it does not
+         * already contain.
+         * 
+         * @return true if it does, false otherwise
+         */
+        public synchronized boolean isDistinct() {
+                return distinct != null;
+        }
+
+        /**
+         * Sets wether this data set only accepts values it does not already
+         * contain. Once enabled, adding a value numerically equal to one present
+         * is silently ignored, at the cost of a hash lookup; the duplicates
+         * already present are removed, keeping the first occurrence of each
+         * value.
+         * 
+         * @param distinct
+         *            <tt>true</tt> to ignore duplicates, <tt>false</tt> otherwise
+         */
+        public synchronized void setDistinct(boolean distinct) {
+                if (!distinct) {
+                        this.distinct = null;
+                        return;
+                }
+
+                if (this.distinct == null) {
+                        DoubleIntMap present = new DoubleIntMap(0);
+                        int n = getCount();
+                        int kept = 0;
+
+                        if (n > 0) {
+                                int order[] = new int[n];
+                                int dropped = n;
+
+                                doMaintenance();
+                                beforeChange();
+
+                                // The first occurrences are moved ahead, the duplicates
+                                // behind them, then dropped
+                                for (int i = 0; i < n; i++) {
+                                        if (present.increment(doubleAt(i), 1) == 1) {
+                                                order[kept++] = i;
+                                        } else {
+                                                order[--dropped] = i;
+                                                removed((Value) values.get(i));
+                                        }
+                                }
+
+                                if (kept < n) {
+                                        permute(values, 0, order);
+                                        values.subList(kept, n).clear();
+                                        modified();
+                                }
+                        }
+
+                        this.distinct = present;
+
+                        log.debug("Distinct on ingest, removed " + (n - kept)
+                                        + " duplicate(s)");
+                }
+        }
+
+        /**
+         * Will create a new data set containing the first occurrence of each
+         * distinct value of this data set, in the order of this data set. Values
+         * are compared numerically: <tt>-0.0</tt> and <tt>0.0</tt> are the same
+         * value, and so are all not-a-number values.
+         * <p>
+         * This is a single pass over the values using a primitive hash set, whose
+         * size is proportional to the number of distinct values.
+         * 
+         * @return a new data set instance, <tt>null</tt> if empty
+         */
+        public DataSet getUnique() {
+                return getDistinct(true);
+        }
+
+        /**
+         * Will create a new data set containing the values of this data set which
+         * are equal to a value found before them, in the order of this data set.
+         * Together with <tt>getUnique()</tt>, it partitions this data set. See
+         * <tt>getUnique()</tt>.
+         * 
+         * @return a new data set instance, <tt>null</tt> if there are no
+         *         duplicates
+         */
+        public DataSet getDuplicates() {
+                return getDistinct(false);
+        }
+
+        /**
+         * Internal method selecting either the first occurrence of each value, or
+         * all the others.
+         */
+        private synchronized DataSet getDistinct(boolean first) {
+                DataSet ds = null;
+                int n = getCount();
+
+                if (n == 0 || distinct != null) {
+                        // Every value is a first occurrence
+                        if (n > 0 && first) {
+                                doMaintenance();
+                                ds = view(0, n);
+                        }
+                } else {
+                        DoubleIntMap seen = new DoubleIntMap(0);
+
+                        doMaintenance();
+
+                        if (values instanceof DoubleList) {
+                                DoubleList stored = (DoubleList) values;
+                                DoubleList list = new DoubleList(0);
+
+                                for (int i = 0; i < n; i++) {
+                                        double x = stored.getDouble(i);
+
+                                        if ((seen.increment(x, 1) == 1) == first) {
+                                                list.addDouble(x, stored.getCorrelation(i));
+                                        }
+                                }
+
+                                if (list.size() > 0) {
+                                        ds = wrap(list);
+                                }
+                        } else {
+                                List list = new ArrayList();
+
+                                for (int i = 0; i < n; i++) {
+                                        Value v = (Value) values.get(i);
+
+                                        if ((seen.increment(v.doubleValue(), 1) == 1) == first) {
+                                                list.add(v);
+                                        }
+                                }
+
+                                if (list.size() > 0) {
+                                        ds = new DataSet();
+                                        ds.values = list;
+                                }
+                        }
+                }
+
+                if (ds != null && isSorted) {
+                        // A subsequence of sorted values is sorted
+                        ds.isSorted = true;
+                        ds.isReversed = isReversed;
+                        ds.sortedCount = ds.values.size();
+                }
+
+                return ds;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Rank Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests to know if this data set maintains a rank index.
+         * 
+         * @return true if it does, false otherwise
+         */
+        public synchronized boolean isRanked() {
+                return rankTree != null;
+        }
+
+        /**
+         * Sets wether this data set maintains a rank index of its values: an
+         * order-statistic tree which is built once from the current values and
+         * then kept up to date as values are added and removed, without ever
+         * being rebuilt.
+         * <p>
+         * While maintained, <tt>getRank()</tt>, <tt>getValueAtRank()</tt> and
+         * <tt>getPercentileRank()</tt> take logarithmic time whatever the
+         * modifications made in between. Without it they rely on the sorted index
+         * (see <tt>setIndexed()</tt>), which is rebuilt after modifications.
+         * 
+         * @param ranked
+         *            <tt>true</tt> to maintain a rank index, <tt>false</tt>
+         *            otherwise
+         */
+        public synchronized void setRanked(boolean ranked) {
+                if (!ranked) {
+                        rankTree = null;
+                        return;
+                }
+
+                if (rankTree == null) {
+                        int n = getCount();
+
+                        rankTree = new RankTree(n);
+
+                        for (int i = 0; i < n; i++) {
+                                rankTree.add(doubleAt(i));
+                        }
+
+                        log.debug("Maintaining rank index of " + n + " values");
+                }
+        }
+
+        /**
+         * Requests the rank of the specified value: the number of values of this
+         * data set which are strictly smaller. This is also the position the
+         * value would take in this data set sorted in ascending order.
+         * <p>
+         * Values are compared numerically (<tt>-0.0</tt> equals <tt>0.0</tt>),
+         * and not-a-number values are ranked above all others, whether or not a
+         * rank index is maintained: the rank of <tt>NaN</tt> is the count of the
+         * other values.
+         * 
+         * @param value
+         *            to be ranked
+         * @return a count of values
+         */
+        public synchronized int getRank(double value) {
+                if (rankTree != null) {
+                        return rankTree.countBelow(value, false);
+                }
+
+                if (Double.isNaN(value)) {
+                        return getCount() - countNaN();
+                }
+
+                return getCountLessThan(value);
+        }
+
+        /**
+         * Requests the value of the specified rank, in other words the value at
+         * the specified position of this data set sorted in ascending order: the
+         * smallest value has a rank of zero.
+         * 
+         * @param rank
+         *            of the value
+         * @return a value instance, <tt>null</tt> if the rank is out of range
          */
-        public synchronized void setSorted(boolean sorted) {
-                setSorted(sorted, isReversed);
+        public synchronized Value getValueAtRank(int rank) {
+                Value v = null;
+
+                if (rank >= 0 && rank < getCount()) {
+                        if (rankTree != null) {
+                                v = new Value(rankTree.select(rank));
+                        } else {
+                                List index = getIndex();
+
+                                if (index == null) {
+                                        index = getSorted(false).values;
+                                } else if (isIndexReversed(index)) {
+                                        rank = index.size() - 1 - rank;
+                                }
+
+                                v = (Value) index.get(rank);
+                        }
+                }
+
+                return v;
         }
 
         /**
-         * Sets this data-set in sorted or unsorted order. When sorted is requested,
-         * the data set will remain sorted at all times.
-         * <p>
-         * It is important to note that once the sort mode has been enabled, the
-         * initial order of the data-set will be preserved and will not be lost.
+         * Requests the percentile rank of the specified value: the percentage of
+         * the values of this data set which are smaller than or equal to it. For
+         * example, the percentage of requests served within 200 ms.
          * <p>
-         * The internal 'reverse' state will be preserved when invoking this method
-         * and is like invoking <tt>setSorted(boolean, isReversed())</tt>.
+         * Values are ranked like <tt>getRank()</tt>, so the percentile rank of
+         * <tt>NaN</tt> is 100.
          * 
-         * @param sorted
-         *            <tt>true</tt> will sort the data-set, <tt>false</tt> will not
-         *            sorted the data-set
-         * @param reversed
-         *            indicates that the sort order will be reversed
+         * @param value
+         *            to be ranked
+         * @return a percentage between 0 and 100, <tt>null</tt> if this data set
+         *         is empty
          */
-        public synchronized void setSorted(boolean sorted, boolean reversed) {
-                if (isSorted != sorted) {
-                        isSorted = sorted;
-                        isDirty = true;
-                        isModified = true;
+        public synchronized Value getPercentileRank(double value) {
+                int count = getCount();
+                int below = 0;
+
+                if (count == 0) {
+                        return null;
                 }
 
-                setReversed(reversed);
+                if (rankTree != null) {
+                        below = rankTree.countBelow(value, true);
+                } else if (Double.isNaN(value)) {
+                        below = count;
+                } else {
+                        below = count(Double.NEGATIVE_INFINITY, true, value, true);
+                }
+
+                return new Value(100.0 * below / count);
+        }
+
+        /**
+         * Counts our not-a-number values, which are ranked above all others.
+         */
+        private int countNaN() {
+                int n = prepare();
+                int count = 0;
+
+                for (int i = 0; i < n; i++) {
+                        if (Double.isNaN(doubleAt(i))) {
+                                count++;
+                        }
+                }
+
+                return count;
         }
 
         // ///////////////////////////////////////////////////////////////////////
@@ -1129,20 +2484,50 @@ public class DataSet implements Comparable {
                 log.debug("Adding value: " + value);
 
                 if (value != null) {
+                        long start = started();
+
+                        if (distinct != null) {
+                                if (distinct.get(value.doubleValue()) != DoubleIntMap.MISSING) {
+                                        log.debug("-> Already present, ignored!");
+                                        return;
+                                }
 
-                        if (correlation != null) {
-                                log.debug("-> Correlation: " + correlation);
-                                value.addCorrelation(correlation);
+                                distinct.put(value.doubleValue(), 1);
                         }
 
                         if (values == null) {
                                 log.debug("-> Allocating space!");
-                                values = new ArrayList();
+                                values = isColumnar ? (List) new DoubleList(0)
+                                                : isChunked ? (List) new ChunkedList()
+                                                                : new ArrayList();
+                        }
+
+                        beforeChange();
+
+                        if (values instanceof ReversedList) {
+                                // Appending through the reversed view would prepend to
+                                // our storage, store the values in the order they are
+                                // read instead (once)
+                                log.debug("-> Storing reversed values in order!");
+                                values = reverse(((ReversedList) values).getList());
                         }
 
-                        values.add(value);
+                        if (correlation != null && values instanceof DoubleList) {
+                                log.debug("-> Correlation (columnar): " + correlation);
+                                ((DoubleList) values).addDouble(value.doubleValue(),
+                                                correlation);
+                        } else {
+                                if (correlation != null) {
+                                        log.debug("-> Correlation: " + correlation);
+                                        value.addCorrelation(correlation);
+                                }
+
+                                values.add(value);
+                        }
 
+                        added(value);
                         modified();
+                        record(Metrics.INGEST, 1, start);
                 }
         }
 
@@ -1167,46 +2552,495 @@ public class DataSet implements Comparable {
 
                 log.debug("Getting value at " + index);
 
-                if (values != null) {
-                        if (index >= 0 && index < values.size()) {
-                                doMaintenance();
-                                value = (Value) values.get(index);
-                        }
+                if (values != null) {
+                        if (index >= 0 && index < values.size()) {
+                                doMaintenance();
+                                value = (Value) values.get(index);
+                        }
+                }
+
+                log.debug("Returning value: " + value);
+
+                return value;
+        }
+
+        /**
+         * Internal method to get the numerical value at the specified index
+         * without going through the accessors. The caller must hold the lock,
+         * have called <tt>doMaintenance()</tt> and checked the index.
+         * 
+         * @param index
+         *            of the value to be retrieved
+         * @return a double value
+         */
+        private double doubleAt(int index) {
+                return doubleAt(values, index);
+        }
+
+        private static double doubleAt(List list, int index) {
+                if (list instanceof ReversedList) {
+                        ReversedList reversed = (ReversedList) list;
+                        return doubleAt(reversed.getList(), reversed.mirror(index));
+                }
+
+                if (list instanceof DoubleList) {
+                        return ((DoubleList) list).getDouble(index);
+                }
+
+                if (list instanceof DoubleList.Range) {
+                        return ((DoubleList.Range) list).getDouble(index);
+                }
+
+                return ((Value) list.get(index)).doubleValue();
+        }
+
+        private static Object correlationAt(List list, int index) {
+                if (list instanceof ReversedList) {
+                        ReversedList reversed = (ReversedList) list;
+                        return correlationAt(reversed.getList(), reversed.mirror(index));
+                }
+
+                if (list instanceof DoubleList) {
+                        return ((DoubleList) list).getCorrelation(index);
+                }
+
+                if (list instanceof DoubleList.Range) {
+                        return ((DoubleList.Range) list).getCorrelation(index);
+                }
+
+                return null;
+        }
+
+        /**
+         * Prepares this data set for a sequence of <tt>valueAt()</tt> calls made
+         * by a helper class of this package, which must hold our lock for the
+         * whole sequence.
+         * 
+         * @return a count of values
+         */
+        int prepare() {
+                doMaintenance();
+                return getCount();
+        }
+
+        /**
+         * Requests the numerical value at the specified index. See
+         * <tt>prepare()</tt>.
+         * 
+         * @param index
+         *            of the value
+         * @return a double value
+         */
+        double valueAt(int index) {
+                return doubleAt(index);
+        }
+
+        /**
+         * Requests the correlation of the value at the specified index, see
+         * <tt>getCorrelationAt()</tt> and <tt>prepare()</tt>.
+         * 
+         * @param index
+         *            of the value
+         * @return the correlation, <tt>null</tt> if none or not primitive-backed
+         */
+        Object correlationAt(int index) {
+                return correlationAt(values, index);
+        }
+
+        /**
+         * Internal method which will return a list iterator. If the list is null,
+         * an empty iterator will be provided.
+         * <p>
+         * All accessors should lead to one of three methods (including this one).
+         * 
+         * @return a valid iterator
+         */
+        private synchronized Iterator getIterator() {
+                doMaintenance();
+                return values != null ? getValues().iterator() : Collections.EMPTY_LIST
+                                .iterator();
+        }
+
+        /**
+         * This method allows for sorting of our values if our dirty flag is set.
+         * This method should be called from every low-level accessor.
+         * <p>
+         * A sorted data set keeps track of how many of its leading values are
+         * already sorted, the values appended since forming an unsorted tail.
+         * Rather than sorting everything again, a short tail is inserted by
+         * binary search, and a longer one is sorted on its own and merged in
+         * linear time. Only when the tail outgrows the sorted values, or when
+         * the order was changed, are all values sorted.
+         */
+        private synchronized void doMaintenance() {
+                if (isDirty && isSorted) {
+                        if (values != null) {
+                                int n = values.size();
+                                int tail = n - sortedCount;
+
+                                // Without a tail, only removals were made
+                                if (tail > 0) {
+                                        long start = started();
+
+                                        beforeChange();
+
+                                        if (tail > sortedCount) {
+                                                log.debug(isReversed ? "Sorting (reversed)!"
+                                                                : "Sorting!");
+                                                sort(values, 0, n, isReversed);
+                                        } else if (tail <= INSERTION_LIMIT) {
+                                                log.debug("Inserting " + tail + " value(s)!");
+                                                insert(sortedCount);
+                                        } else {
+                                                log.debug("Merging " + tail + " value(s)!");
+                                                sort(values, sortedCount, n, isReversed);
+                                                merge(sortedCount);
+                                        }
+
+                                        record(Metrics.SORT, tail, start);
+                                }
+
+                                sortedCount = n;
+                        }
+
+                        isDirty = false;
+                }
+        }
+
+        /**
+         * Internal method sorting a range of the specified list of values in
+         * numerical order. The numerical values are sorted as primitives (see
+         * <tt>Sorter</tt>) and the <tt>Value</tt> instances, or the correlation
+         * column, are then moved following the resulting permutation.
+         * 
+         * @param list
+         *            of values
+         * @param from
+         *            index of the first value, inclusive
+         * @param to
+         *            index of the last value, exclusive
+         * @param reversed
+         *            <tt>true</tt> for descending order
+         */
+        private static void sort(List list, int from, int to, boolean reversed) {
+                if (list instanceof DoubleList) {
+                        ((DoubleList) list).sort(from, to, reversed);
+                } else {
+                        double keys[] = new double[to - from];
+
+                        for (int i = 0; i < keys.length; i++) {
+                                keys[i] = doubleAt(list, from + i);
+                        }
+
+                        permute(list, from, Sorter.order(keys, 0, keys.length, reversed));
+                }
+        }
+
+        /**
+         * Internal method rearranging a range of the specified list of values so
+         * that the value at index <tt>from + i</tt> is the one previously at
+         * <tt>from + order[i]</tt>. Correlations follow their values, including
+         * those of a correlation column.
+         * 
+         * @param list
+         *            of values
+         * @param from
+         *            index of the first value of the range
+         * @param order
+         *            permutation of the range, see <tt>Sorter.order()</tt>
+         */
+        private static void permute(List list, int from, int order[]) {
+                int n = order.length;
+
+                if (list instanceof ReversedList) {
+                        // Mirror the range and the permutation
+                        ReversedList reversed = (ReversedList) list;
+                        int mirrored[] = new int[n];
+
+                        for (int i = 0; i < n; i++) {
+                                mirrored[i] = n - 1 - order[n - 1 - i];
+                        }
+
+                        permute(reversed.getList(), reversed.mirror(from + n - 1),
+                                        mirrored);
+                } else if (list instanceof DoubleList) {
+                        ((DoubleList) list).permute(from, order);
+                } else {
+                        Object range[] = list.subList(from, from + n).toArray();
+
+                        for (int i = 0; i < n; i++) {
+                                list.set(from + i, range[order[i]]);
+                        }
+                }
+        }
+
+        /**
+         * Internal method reversing the order of the specified list of values in
+         * place. Correlations follow their values, including those of a
+         * correlation column.
+         * 
+         * @param list
+         *            of values
+         * @return the list
+         */
+        private static List reverse(List list) {
+                int n = list.size();
+                int order[] = new int[n];
+
+                for (int i = 0; i < n; i++) {
+                        order[i] = n - 1 - i;
+                }
+
+                permute(list, 0, order);
+
+                return list;
+        }
+
+        /**
+         * Internal method moving the value at one index of the specified list to
+         * another, shifting the values in between by one position. Correlations
+         * follow their values, including those of a correlation column.
+         * 
+         * @param list
+         *            of values
+         * @param from
+         *            current index of the value
+         * @param to
+         *            new index of the value
+         */
+        private static void move(List list, int from, int to) {
+                if (list instanceof ReversedList) {
+                        ReversedList reversed = (ReversedList) list;
+                        move(reversed.getList(), reversed.mirror(from), reversed
+                                        .mirror(to));
+                } else if (list instanceof DoubleList) {
+                        ((DoubleList) list).move(from, to);
+                } else if (from != to) {
+                        list.add(to, list.remove(from));
+                }
+        }
+
+        /**
+         * Compares two numerical values in the order of this data set, the same
+         * total order as <tt>Sorter</tt>.
+         */
+        private int compare(double a, double b) {
+                return isReversed ? Double.compare(b, a) : Double.compare(a, b);
+        }
+
+        /**
+         * Internal method moving each value following the sorted ones to its
+         * position, found by binary search. Equal values keep their order.
+         * 
+         * @param sorted
+         *            number of leading values already sorted
+         */
+        private void insert(int sorted) {
+                for (int i = sorted; i < values.size(); i++) {
+                        double x = doubleAt(i);
+                        int low = 0;
+                        int high = i;
+
+                        while (low < high) {
+                                int mid = (low + high) >>> 1;
+
+                                if (compare(doubleAt(mid), x) <= 0) {
+                                        low = mid + 1;
+                                } else {
+                                        high = mid;
+                                }
+                        }
+
+                        move(values, i, low);
+                }
+        }
+
+        /**
+         * Internal method merging, in a single pass, two consecutive sorted runs
+         * of values. Equal values keep their order.
+         * 
+         * @param sorted
+         *            number of values of the first run, the second run is made of
+         *            all the following values
+         */
+        private void merge(int sorted) {
+                int n = values.size();
+                int order[] = new int[n];
+                int i = 0;
+                int j = sorted;
+                int k = 0;
+
+                while (i < sorted && j < n) {
+                        if (compare(doubleAt(j), doubleAt(i)) < 0) {
+                                order[k++] = j++;
+                        } else {
+                                order[k++] = i++;
+                        }
+                }
+
+                while (i < sorted) {
+                        order[k++] = i++;
+                }
+
+                // What remains of the second run is already in place
+                while (j < n) {
+                        order[k++] = j++;
+                }
+
+                permute(values, 0, order);
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // View Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Creates a read-only view over a range of our values. The view shares
+         * our storage: it is detached (given its own copy of the range) only when
+         * it is about to be changed, or when this data set is about to change.
+         * 
+         * @param from
+         *            index of the first value, inclusive
+         * @param to
+         *            index of the last value, exclusive
+         * @return a new data set instance
+         */
+        private DataSet view(int from, int to) {
+                DataSet ds = new DataSet();
+
+                ds.values = values.subList(from, to);
+                ds.isShared = true;
+                ds.source = storage(values);
+
+                if (views == null) {
+                        views = new ArrayList();
+                } else if (Integer.bitCount(views.size()) == 1) {
+                        // Purge the views which were garbage collected
+                        for (Iterator it = views.iterator(); it.hasNext();) {
+                                if (((WeakReference) it.next()).get() == null) {
+                                        it.remove();
+                                }
+                        }
+                }
+
+                views.add(new WeakReference(ds));
+
+                return ds;
+        }
+
+        /**
+         * Must be called before our storage is changed in place. Our views are
+         * detached, and if our storage is shared with another data set we take a
+         * private copy of it first.
+         */
+        private void beforeChange() {
+                detachViews();
+
+                if (isShared) {
+                        log.debug("Copying shared values!");
+                        values = values != null ? copy(values) : null;
+                        isShared = false;
+                        source = null;
+                }
+        }
+
+        /**
+         * Gives each of our views its own copy of the values it shares with us.
+         */
+        private void detachViews() {
+                if (views != null) {
+                        for (int i = 0; i < views.size(); i++) {
+                                DataSet ds = (DataSet) ((WeakReference) views.get(i)).get();
+
+                                if (ds != null) {
+                                        ds.detach(storage(values));
+                                }
+                        }
+
+                        views = null;
+                }
+        }
+
+        /**
+         * Requests the list actually holding the specified values, which are
+         * possibly read backward (see <tt>setReversed()</tt>).
+         */
+        private static List storage(List list) {
+                return list instanceof ReversedList ? ((ReversedList) list).getList()
+                                : list;
+        }
+
+        /**
+         * Copies the specified values into storage of the same kind: a
+         * primitive list (possibly read backward) stays primitive, along with
+         * its correlation column, and a chunked list stays chunked.
+         */
+        private static List copy(List list) {
+                if (list instanceof ReversedList) {
+                        return new ReversedList(copy(((ReversedList) list).getList()));
+                } else if (list instanceof DoubleList) {
+                        return ((DoubleList) list).copy();
+                } else if (list instanceof DoubleList.Range) {
+                        return ((DoubleList.Range) list).copy();
+                } else if (list instanceof ChunkedList) {
+                        return new ChunkedList(list);
+                }
+
+                return new ArrayList(list);
+        }
+
+        /**
+         * Copies the specified values like <tt>copy()</tt>, in constant time
+         * when their storage supports it: a primitive list shares its arrays and
+         * a chunked list its chunks until either side changes them.
+         */
+        private static List snapshot(List list) {
+                if (list instanceof ReversedList) {
+                        return new ReversedList(snapshot(((ReversedList) list).getList()));
+                } else if (list instanceof DoubleList) {
+                        return ((DoubleList) list).share();
+                } else if (list instanceof ChunkedList) {
+                        return ((ChunkedList) list).copy();
                 }
 
-                log.debug("Returning value: " + value);
+                return copy(list);
+        }
 
-                return value;
+        /**
+         * Requests to know if the specified values are held by a primitive list.
+         */
+        private static boolean isPrimitive(List list) {
+                List storage = storage(list);
+                return storage instanceof DoubleList
+                                || storage instanceof DoubleList.Range;
         }
 
         /**
-         * Internal method which will return a list iterator. If the list is null,
-         * an empty iterator will be provided.
-         * <p>
-         * All accessors should lead to one of three methods (including this one).
-         * 
-         * @return a valid iterator
+         * Invoked by the data set we are a view of, before it changes the
+         * specified storage.
          */
-        private synchronized Iterator getIterator() {
-                doMaintenance();
-                return values != null ? getValues().iterator() : Collections.EMPTY_LIST
-                                .iterator();
+        private synchronized void detach(List storage) {
+                if (isShared && source == storage) {
+                        beforeChange();
+                }
         }
 
         /**
-         * This method allows for sorting of our values if our dirty flag is set.
-         * This method should be called from every low-level accessor.
+         * Drops our storage, detaching our views first. Shared storage is left
+         * untouched for its other users.
          */
-        private synchronized void doMaintenance() {
-                if (isDirty && isSorted) {
-                        if (!isReversed) {
-                                log.debug("Sorting!");
-                                Collections.sort(values);
-                        } else {
-                                log.debug("Sorting (reversed)!");
-                                Collections.sort(values, Collections.reverseOrder());
-                        }
+        private void release() {
+                detachViews();
+
+                if (values != null && !isShared) {
+                        values.clear();
                 }
+
+                values = null;
+                isShared = false;
+                source = null;
+                sortedCache = null;
+                sortedCount = 0;
         }
 
         // ///////////////////////////////////////////////////////////////////////
@@ -1242,6 +3076,28 @@ public class DataSet implements Comparable {
                 return get(getCount() - 1);
         }
 
+        /**
+         * Retrieves the numerical values contained within this data set, in the
+         * current order of the data set.
+         * 
+         * @return a new array of values, <tt>null</tt> if this data set is empty
+         */
+        public synchronized double[] getDoubleValues() {
+                int count = getCount();
+                double data[] = null;
+
+                if (count > 0) {
+                        doMaintenance();
+                        data = new double[count];
+
+                        for (int i = 0; i < count; i++) {
+                                data[i] = doubleAt(i);
+                        }
+                }
+
+                return data;
+        }
+
         /**
          * Retrieves the collection of <tt>Value</tt> instances contained within
          * this data set.
@@ -1331,15 +3187,16 @@ public class DataSet implements Comparable {
         public synchronized int clear() {
                 int count = getCount();
 
-                if (values != null) {
-                        values.clear();
-                        values = null;
-                }
+                release();
 
                 isSorted = false;
                 isReversed = false;
                 isModified = false;
 
+                heavyHitters = null;
+                rankTree = null;
+                distinct = null;
+
                 return count;
         }
 
@@ -1359,15 +3216,24 @@ public class DataSet implements Comparable {
         public synchronized int empty() {
                 int count = getCount();
 
-                if (values != null) {
-                        values.clear();
-                        values = null;
-                }
+                release();
 
                 if (count > 0) {
                         isModified = true;
                 }
 
+                if (heavyHitters != null) {
+                        heavyHitters.reset();
+                }
+
+                if (rankTree != null) {
+                        rankTree.clear();
+                }
+
+                if (distinct != null) {
+                        distinct.clear();
+                }
+
                 return count;
         }
 
@@ -1405,6 +3271,8 @@ public class DataSet implements Comparable {
         public synchronized Value getMean() {
                 log.debug("Calculating mean!");
 
+                long start = started();
+
                 Value sum = null;
                 Value mean = null;
                 int count = getCount();
@@ -1418,6 +3286,7 @@ public class DataSet implements Comparable {
                 }
 
                 log.info("Mean = " + mean);
+                record(Metrics.MEAN, count, start);
 
                 return mean;
         }
@@ -1433,6 +3302,8 @@ public class DataSet implements Comparable {
         public synchronized Value getSummation() {
                 log.debug("Calculating sum!");
 
+                long start = started();
+
                 Value sum = null;
                 double s = 0.0;
 
@@ -1451,6 +3322,7 @@ public class DataSet implements Comparable {
                 }
 
                 log.info("Summation = " + sum);
+                record(Metrics.SUMMATION, getCount(), start);
 
                 return sum;
         }
@@ -1484,6 +3356,8 @@ public class DataSet implements Comparable {
         public synchronized Value getMedian() {
                 log.debug("Calculating median!");
 
+                long start = started();
+
                 DataSet ds = getSorted();
                 Value median = null;
 
@@ -1503,6 +3377,7 @@ public class DataSet implements Comparable {
                 }
 
                 log.info("Median = " + median);
+                record(Metrics.MEDIAN, count, start);
 
                 return median;
         }
@@ -1552,6 +3427,8 @@ public class DataSet implements Comparable {
         public synchronized Value getMinimum() {
                 log.debug("Calculating minimum!");
 
+                long start = started();
+
                 Value min = null;
                 DataSet ds = getSorted();
 
@@ -1564,6 +3441,7 @@ public class DataSet implements Comparable {
                 }
 
                 log.info("Minimum = " + min);
+                record(Metrics.MINIMUM, getCount(), start);
 
                 return min;
         }
@@ -1578,6 +3456,8 @@ public class DataSet implements Comparable {
         public synchronized Value getMaximum() {
                 log.debug("Calculating maximum!");
 
+                long start = started();
+
                 Value max = null;
                 DataSet ds = getSorted();
 
@@ -1590,6 +3470,7 @@ public class DataSet implements Comparable {
                 }
 
                 log.info("Maximum = " + max);
+                record(Metrics.MAXIMUM, getCount(), start);
 
                 return max;
         }
@@ -1626,11 +3507,24 @@ public class DataSet implements Comparable {
          * <tt>11, 22, 22, 33, 33, 44, 44, 44, 55, 55, 55</tt>
          * <p>
          * A <tt>Value</tt> instance would be returned having the value of 44
+         * <p>
+         * When a heavy-hitters sketch is maintained, the mode is served from the
+         * sketch in constant time.
+         * <p>
+         * <tt>NaN</tt> values are never the mode, whether or not a sketch is
+         * maintained, see <tt>p_getMode()</tt>.
          * 
          * @return a <tt>DataSet</tt> instance
          */
-        public Value getMode() {
-                return p_getMode().getFirstValue();
+        public synchronized Value getMode() {
+                long start = started();
+                HeavyHitters sketch = getHeavyHitters();
+                DataSet top = sketch != null ? getTop(sketch, 1) : p_getMode();
+                Value mode = top != null ? top.getFirstValue() : null;
+
+                record(Metrics.MODE, getCount(), start);
+
+                return mode;
         }
 
         /**
@@ -1735,19 +3629,30 @@ public class DataSet implements Comparable {
     * </tt>
          * <p>
          * And so on. The data set will be ordered based on frequency!
+         * <p>
+         * When a heavy-hitters sketch is maintained, only the monitored values
+         * are considered and they are ordered by their estimated frequencies.
+         * <tt>NaN</tt> values are left out, see <tt>getMode()</tt>.
          * 
          * @param unique
          *            if we should limit it to the highest frequency
          * @return a <tt>DataSet</tt> instance
          */
         public DataSet getMode(int count) {
+                HeavyHitters sketch = getHeavyHitters();
+
+                if (sketch != null) {
+                        return getTop(sketch, count);
+                }
+
                 DataSet ds = p_getMode();
                 return ds.getFirst(count);
         }
 
         /**
          * Internal method which allows us to build a new data set containing
-         * frequencies.
+         * frequencies. <tt>NaN</tt> values are left out: they are never equal to
+         * one another as numbers, so they are no mode candidates.
          * 
          * @return a <tt>DataSet</tt> instance
          */
@@ -1758,11 +3663,21 @@ public class DataSet implements Comparable {
 
                 log.debug("Getting mode!");
 
+                if (heavyHitters != null) {
+                        ds = getTop(heavyHitters, heavyHitters.getCapacity());
+                        return ds != null ? ds : new DataSet();
+                }
+
                 it = getIterator();
 
                 if (it != null) {
                         while (it.hasNext()) {
                                 Value v = (Value) it.next();
+
+                                if (Double.isNaN(v.doubleValue())) {
+                                        continue;
+                                }
+
                                 log.debug("Adding value: " + v);
                                 list.add(v.doubleValue());
                         }
@@ -1780,6 +3695,40 @@ public class DataSet implements Comparable {
                 return ds;
         }
 
+        /**
+         * Internal method requesting the specified number of most frequent
+         * values monitored by the specified sketch, leaving out <tt>NaN</tt>
+         * like <tt>p_getMode()</tt>.
+         */
+        private static DataSet getTop(HeavyHitters sketch, int count) {
+                // The sketch monitors NaN at most once
+                DataSet top = sketch.getTop(count < Integer.MAX_VALUE ? count + 1
+                                : count);
+                DataSet ds = null;
+
+                if (top != null && count > 0) {
+                        for (int i = 0; i < top.getCount(); i++) {
+                                double value = top.getValueAt(i).doubleValue();
+
+                                if (Double.isNaN(value)) {
+                                        continue;
+                                }
+
+                                if (ds == null) {
+                                        ds = new DataSet();
+                                }
+
+                                ds.addValue(value);
+
+                                if (ds.getCount() == count) {
+                                        break;
+                                }
+                        }
+                }
+
+                return ds;
+        }
+
         /**
          * Subtracts all the values within this data set.
          * 
@@ -1887,10 +3836,31 @@ public class DataSet implements Comparable {
                 return getFrequency((double) value);
         }
 
+        /**
+         * Counts the number of values in this data set which are equal to the
+         * specified value.
+         * <p>
+         * When a heavy-hitters sketch is maintained, the frequency is served from
+         * the sketch in constant time. It is then an estimate which never
+         * under-estimates monitored values, see <tt>HeavyHitters</tt> for the
+         * error bounds.
+         * 
+         * @param value
+         *            to be counted
+         * @return a count of values, <tt>null</tt> if this data set is empty
+         */
         public Value getFrequency(double value) {
                 Value count = null;
                 int cnt = 0;
 
+                HeavyHitters sketch = getHeavyHitters();
+
+                if (sketch != null && !isEmpty()) {
+                        count = new Value(sketch.getFrequency(value));
+                        log.debug("Frequency of " + value + " is ~" + count);
+                        return count;
+                }
+
                 if (!isEmpty()) {
                         Iterator it = getIterator();
 
@@ -1898,7 +3868,7 @@ public class DataSet implements Comparable {
                                 Value v = (Value) it.next();
 
                                 if (v != null) {
-                                        if (v.doubleValue() == value) {
+                                        if (equal(v.doubleValue(), value)) {
                                                 cnt++;
                                         }
                                 }
@@ -1912,6 +3882,33 @@ public class DataSet implements Comparable {
                 return count;
         }
 
+        /**
+         * Starts a lazy chain of element-wise operations over the values of this
+         * data set. The chain is only evaluated, in a single pass and without
+         * intermediate data sets, when a terminal operation is invoked. See
+         * <tt>Transform</tt>.
+         * 
+         * @return the identity transform of this data set
+         */
+        public Transform transform() {
+                return new Transform(this);
+        }
+
+        /**
+         * Partitions the values of this data set into groups by the key
+         * extracted from each value and its correlation, each group being
+         * aggregated in a single pass. See <tt>GroupBy</tt>.
+         * 
+         * @param extractor
+         *            of the key of each value, see <tt>GroupBy.CORRELATION</tt>
+         * @return a new aggregation holding the groups of this data set
+         */
+        public GroupBy groupBy(GroupBy.KeyExtractor extractor) {
+                GroupBy groups = new GroupBy(extractor);
+                groups.add(this);
+                return groups;
+        }
+
         /**
          * Creates a new dataset which consists of the distance between the each
          * observations and the mean value.
@@ -1938,25 +3935,12 @@ public class DataSet implements Comparable {
          * @return a dataset instance
          */
         public DataSet getDistance(double value) {
-                DataSet ds = null;
-                Iterator it = null;
-
-                it = getIterator();
+                DataSet ds = transform().shift(-value).toDataSet();
 
-                if (it != null) {
-                        ds = new DataSet();
-
-                        while (it.hasNext()) {
-                                Value v = (Value) it.next();
-
-                                if (v != null) {
-                                        ds.addValue(v.doubleValue() - value);
-                                }
-                        }
+                if (log.isDebugEnabled()) {
+                        log.debug("Distance = " + ds.printValues());
                 }
 
-                log.info("Distance = " + ds.printValues());
-
                 return ds;
         }
 
@@ -1983,120 +3967,334 @@ public class DataSet implements Comparable {
          * <p>
          * (data1 - value)^2, (data2 - value)^2, (dataN - value)^2
          * 
-         * @return a dataset instance
+         * @return a dataset instance
+         */
+        public DataSet getSquaredDistance(double value) {
+                DataSet ds = transform().shift(-value).square().toDataSet();
+
+                if (log.isDebugEnabled()) {
+                        log.debug("Squared Distance = " + ds.printValues());
+                }
+
+                return ds;
+        }
+
+        /**
+         * The variance is a measure of statistical dispersion, averaging the
+         * squared distance of its possible values from the mean.
+         * <p>
+         * Whereas the mean is a way to describe the location of a distribution, the
+         * variance is a way to capture its scale or degree of being spread out.
+         * <p>
+         * The positive square root of the variance, called the standard deviation,
+         * has the same units as the original variable and can be easier to
+         * interpret for this reason.
+         * <p>
+         * ((data1 - mean)^2 + (data2 - mean)^2 + (dataN - mean)^2) / count
+         * 
+         * @return
+         */
+        public synchronized Value getVariance() {
+                long start = started();
+                Value mean = getMean();
+                Value sum = null;
+                Value var = null;
+                double count = getCount();
+
+                if (mean != null) {
+                        sum = transform().shift(-mean.doubleValue()).square().sum();
+                }
+
+                if (count > 0 && sum != null) {
+                        var = new Value(sum.doubleValue() / count);
+                }
+
+                record(Metrics.VARIANCE, (int) count, start);
+
+                return var;
+        }
+
+        /**
+         * The standard deviation measures the spread of the data about the mean
+         * value. It is useful in comparing sets of data which may have the same
+         * mean but a different range. For example, the mean of the following two is
+         * the same: 15, 15, 15, 14, 16 and 2, 7, 14, 22, 30. However, the second is
+         * clearly more spread out. If a set has a low standard deviation, the
+         * values are not spread out too much.
+         * <p>
+         * Example:
+         * <p>
+         * Find the standard deviation of 4, 9, 11, 12, 17, 5, 8, 12, 14
+         * <p>
+         * First work out the mean: 10.222
+         * <p>
+         * Now, subtract the mean individually from each of the numbers in the set
+         * and square the result. This is equivalent to the (x - xbar) step.
+         * <p>
+         * 
+         * <pre>
+         * x          4     9     11    12    17    5     8     12    14
+         * (x - x)   38.7  1.49  0.60  3.16  45.9  27.3  4.94  3.16  14.3
+         * </pre>
+         * 
+         * <p>
+         * Now add up these results (this is the 'sigma' in the formula): 139.55
+         * Divide by n-1. n is the number of values, so in this case is 8: 17.44 And
+         * finally, square root this: 4.18
+         * 
+         * @return the standard deviation
+         */
+        public synchronized Value getStandardDeviation() {
+                long start = started();
+                Value mean = getMean();
+                Value res = null;
+                Value sigma = null;
+                int count = getCount();
+
+                if (mean != null) {
+                        sigma = transform().shift(-mean.doubleValue()).square().sum();
+
+                        log.debug("Sigma = " + sigma + ", count = " + count);
+                }
+
+                if (count > 1 && sigma != null) {
+                        res = new Value(Math.sqrt(sigma.doubleValue() / (count - 1)));
+                }
+
+                record(Metrics.STANDARD_DEVIATION, count, start);
+
+                return res;
+        }
+
+        /**
+         * Computes, in a single pass, a compact summary of this data set holding
+         * its count, sum, minimum, maximum and central moments. Summaries of
+         * several data sets can be merged to obtain the statistics of their union
+         * without gathering the values, see <tt>Summary</tt>.
+         * 
+         * @return a new summary instance
+         */
+        public synchronized Summary getSummary() {
+                Summary s = new Summary();
+                int count = getCount();
+                long start = started();
+
+                if (count > 0) {
+                        doMaintenance();
+
+                        for (int i = 0; i < count; i++) {
+                                s.add(doubleAt(i));
+                        }
+                }
+
+                record(Metrics.SUMMARY, count, start);
+
+                return s;
+        }
+
+        /**
+         * Computes, in a single pass, the co-moments of the pairs made of the
+         * values of this data set and those of the specified data set at the same
+         * positions. The covariance and Pearson's correlation coefficient are
+         * obtained from them, see <tt>Covariance</tt>.
+         * 
+         * @param other
+         *            data set aligned with this one
+         * @return a new covariance instance
+         * @throws IllegalArgumentException
+         *             if the data sets have different counts
+         */
+        public Covariance getCovariance(DataSet other) {
+                return getCovariance(other, 0, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Computes the co-moments of a range of the pairs made of the values of
+         * this data set and those of the specified data set, see
+         * <tt>getCovariance(DataSet)</tt>. The co-moments of consecutive ranges,
+         * computed for example by different threads, are merged with
+         * <tt>Covariance.merge()</tt>.
+         * 
+         * @param other
+         *            data set aligned with this one
+         * @param from
+         *            position of the first pair, inclusive
+         * @param to
+         *            position of the last pair, exclusive (clipped to the count)
+         * @return a new covariance instance
+         * @throws IllegalArgumentException
+         *             if the data sets have different counts
+         */
+        public Covariance getCovariance(DataSet other, int from, int to) {
+                if (other == null) {
+                        throw new IllegalArgumentException("Data set is null");
+                }
+
+                int h1 = System.identityHashCode(this);
+                int h2 = System.identityHashCode(other);
+
+                // Both data sets are locked, always in the same order
+                if (h1 == h2) {
+                        synchronized (TIE_LOCK) {
+                                synchronized (this) {
+                                        synchronized (other) {
+                                                return pairs(other, from, to);
+                                        }
+                                }
+                        }
+                }
+
+                DataSet first = h1 < h2 ? this : other;
+                DataSet second = h1 < h2 ? other : this;
+
+                synchronized (first) {
+                        synchronized (second) {
+                                return pairs(other, from, to);
+                        }
+                }
+        }
+
+        /**
+         * Computes Pearson's correlation coefficient between the values of this
+         * data set and those of the specified data set at the same positions.
+         * 
+         * @param other
+         *            data set aligned with this one
+         * @return a value between -1 and 1, <tt>null</tt> if there are no values
+         *         or the values of either data set are all equal
+         * @throws IllegalArgumentException
+         *             if the data sets have different counts
+         */
+        public Value getCorrelation(DataSet other) {
+                return getCovariance(other).getCorrelation();
+        }
+
+        /**
+         * Computes Spearman's rank correlation coefficient between the values of
+         * this data set and those of the specified data set at the same
+         * positions: Pearson's coefficient of their ranks, tied values sharing
+         * the average of their ranks.
+         * 
+         * @param other
+         *            data set aligned with this one
+         * @return a value between -1 and 1, <tt>null</tt> if there are no values
+         *         or the values of either data set are all equal
+         * @throws IllegalArgumentException
+         *             if the data sets have different counts
          */
-        public DataSet getSquaredDistance(double value) {
-                DataSet ds = null;
-                Iterator it = null;
+        public Value getRankCorrelation(DataSet other) {
+                if (other == null) {
+                        throw new IllegalArgumentException("Data set is null");
+                }
 
-                ds = getDistance(value);
+                double x[] = getDoubleValues();
+                double y[] = other.getDoubleValues();
 
-                if (ds != null) {
-                        it = ds.getIterator();
+                if (x == null || y == null) {
+                        return getCorrelation(other);
                 }
 
-                if (it != null) {
-                        ds = new DataSet();
-
-                        while (it.hasNext()) {
-                                Value v = (Value) it.next();
+                return new Covariance(ranks(x), ranks(y)).getCorrelation();
+        }
 
-                                if (v != null) {
-                                        ds.addValue(Math.pow(v.doubleValue(), 2));
-                                }
-                        }
+        /**
+         * Internal method computing the co-moments of a range of pairs. Both data
+         * sets must be locked.
+         */
+        private Covariance pairs(DataSet other, int from, int to) {
+                Covariance c = new Covariance();
+                int n = prepare();
+                int m = other.prepare();
+
+                if (n != m) {
+                        throw new IllegalArgumentException("Unaligned data sets: " + n
+                                        + " and " + m + " values");
                 }
 
-                log.info("Squared Distance = " + ds.printValues());
+                for (int i = Math.max(from, 0); i < Math.min(to, n); i++) {
+                        c.add(doubleAt(i), other.doubleAt(i));
+                }
 
-                return ds;
+                return c;
         }
 
         /**
-         * The variance is a measure of statistical dispersion, averaging the
-         * squared distance of its possible values from the mean.
-         * <p>
-         * Whereas the mean is a way to describe the location of a distribution, the
-         * variance is a way to capture its scale or degree of being spread out.
-         * <p>
-         * The positive square root of the variance, called the standard deviation,
-         * has the same units as the original variable and can be easier to
-         * interpret for this reason.
-         * <p>
-         * ((data1 - mean)^2 + (data2 - mean)^2 + (dataN - mean)^2) / count
-         * 
-         * @return
+         * Internal method replacing each value by its rank, starting at one, tied
+         * values sharing the average of their ranks. Values tie when they are
+         * numerically equal: <tt>-0.0</tt> and <tt>0.0</tt> are the same value
+         * (the zeros of the specified array are made positive).
          */
-        public Value getVariance() {
-                DataSet ds = null;
-                Value sum = null;
-                Value var = null;
-                double count = 0;
+        private static double[] ranks(double values[]) {
+                for (int i = 0; i < values.length; i++) {
+                        if (values[i] == 0.0) {
+                                values[i] = 0.0;
+                        }
+                }
 
-                ds = getSquaredDistance();
+                int order[] = Sorter.order(values, 0, values.length, false);
+                double ranks[] = new double[values.length];
+                int i = 0;
 
-                if (ds != null) {
-                        sum = ds.getSummation();
-                        count = ds.getCount();
-                }
+                while (i < order.length) {
+                        int j = i + 1;
 
-                if (count > 0 && sum != null) {
-                        var = new Value(sum.doubleValue() / count);
+                        while (j < order.length
+                                        && Double.compare(values[order[j]], values[order[i]]) == 0) {
+                                j++;
+                        }
+
+                        double rank = (i + 1 + j) / 2.0;
+
+                        for (int k = i; k < j; k++) {
+                                ranks[order[k]] = rank;
+                        }
+
+                        i = j;
                 }
 
-                return var;
+                return ranks;
         }
 
         /**
-         * The standard deviation measures the spread of the data about the mean
-         * value. It is useful in comparing sets of data which may have the same
-         * mean but a different range. For example, the mean of the following two is
-         * the same: 15, 15, 15, 14, 16 and 2, 7, 14, 22, 30. However, the second is
-         * clearly more spread out. If a set has a low standard deviation, the
-         * values are not spread out too much.
-         * <p>
-         * Example:
-         * <p>
-         * Find the standard deviation of 4, 9, 11, 12, 17, 5, 8, 12, 14
-         * <p>
-         * First work out the mean: 10.222
-         * <p>
-         * Now, subtract the mean individually from each of the numbers in the set
-         * and square the result. This is equivalent to the (x - xbar) step.
-         * <p>
-         * 
-         * <pre>
-         * x          4     9     11    12    17    5     8     12    14
-         * (x - x)   38.7  1.49  0.60  3.16  45.9  27.3  4.94  3.16  14.3
-         * </pre>
-         * 
+         * Creates a histogram of the values of this data set, sized for its
+         * largest value. See <tt>Histogram</tt> for details.
          * <p>
-         * Now add up these results (this is the 'sigma' in the formula): 139.55
-         * Divide by n-1. n is the number of values, so in this case is 8: 17.44 And
-         * finally, square root this: 4.18
+         * All values must be non-negative, and they are rounded to the nearest
+         * integer when recorded. <tt>NaN</tt> values are skipped: they neither
+         * size nor enter the histogram.
          * 
-         * @return the standard deviation
+         * @param significantDigits
+         *            precision of the histogram, from 0 to 5
+         * @return a new histogram instance, <tt>null</tt> if this data set is
+         *         empty
          */
-        public Value getStandardDeviation() {
-                DataSet ds = null;
-                Value res = null;
-                Value sigma = null;
-                int count = 0;
+        public synchronized Histogram getHistogram(int significantDigits) {
+                long start = started();
+                double data[] = getDoubleValues();
+                Histogram h = null;
 
-                ds = getSquaredDistance();
+                if (data != null) {
+                        double max = 0.0;
 
-                if (ds != null) {
-                        sigma = ds.getSummation();
-                        count = ds.getCount();
+                        for (int i = 0; i < data.length; i++) {
+                                if (data[i] > max) {
+                                        max = data[i];
+                                }
+                        }
 
-                        log.debug("Sigma = " + sigma + ", count = " + count);
-                }
+                        h = new Histogram(Math.max(Math.round(max), 2),
+                                        significantDigits);
 
-                if (count > 1 && sigma != null) {
-                        res = new Value(Math.sqrt(sigma.doubleValue() / (count - 1)));
+                        for (int i = 0; i < data.length; i++) {
+                                if (!Double.isNaN(data[i])) {
+                                        h.recordValue(data[i]);
+                                }
+                        }
                 }
 
-                return res;
+                record(Metrics.HISTOGRAM, data != null ? data.length : 0, start);
+
+                return h;
         }
 
         ////////////////////////////////////////////////////////////////////////////
@@ -2105,16 +4303,74 @@ public class DataSet implements Comparable {
         ////////////////////////////////////////////////////////////////////////////
         // /
 
+        /**
+         * Will create a new data set containing the 'Nth' largest values of this
+         * data set, in ascending order.
+         * <p>
+         * When a sorted index is available (see <tt>setIndexed()</tt>), the new
+         * data set is a read-only view over it. Otherwise the values are
+         * selected in a single pass keeping only 'Nth' values in a bounded heap
+         * (see <tt>TopN</tt>), which takes <tt>O(n log Nth)</tt> time. Either way
+         * the <tt>Value</tt> instances are referenced with their correlations.
+         * 
+         * @param Nth
+         *            number of values to be taken
+         * @return a new data set instance, <tt>null</tt> if none
+         */
         public DataSet getLargest(int Nth) {
+                return getExtremes(Nth, true);
+        }
+
+        /**
+         * Will create a new data set containing the 'Nth' smallest values of
+         * this data set, in ascending order. See <tt>getLargest()</tt>.
+         * 
+         * @param Nth
+         *            number of values to be taken
+         * @return a new data set instance, <tt>null</tt> if none
+         */
+        public DataSet getSmallest(int Nth) {
+                return getExtremes(Nth, false);
+        }
+
+        /**
+         * Internal method selecting the 'Nth' largest or smallest values.
+         */
+        private synchronized DataSet getExtremes(int Nth, boolean largest) {
                 DataSet ds = null;
 
-                if (Nth > 0) {
-                        ds = getCopy();
-                }
+                if (Nth > 0 && !isEmpty()) {
+                        List index = getIndex();
+                        int n = values.size();
+                        int count = Math.min(Nth, n);
 
-                if (ds != null) {
-                        ds.setSorted(true);
-                        ds = ds.getLast(Nth);
+                        if (index != null) {
+                                boolean reversed = isIndexReversed(index);
+                                boolean atEnd = largest != reversed;
+                                int from = atEnd ? n - count : 0;
+                                int to = atEnd ? n : count;
+
+                                if (index == values) {
+                                        ds = view(from, to);
+                                } else {
+                                        // The index is never changed in place
+                                        ds = new DataSet();
+                                        ds.values = index.subList(from, to);
+                                        ds.isShared = true;
+                                }
+
+                                if (reversed) {
+                                        ds.values = new ReversedList(ds.values);
+                                }
+                        } else {
+                                TopN top = new TopN(count, largest);
+
+                                top.offer(this);
+                                ds = top.getDataSet();
+                        }
+
+                        ds.isSorted = true;
+                        ds.sortedCount = count;
                 }
 
                 return ds;
@@ -2125,7 +4381,8 @@ public class DataSet implements Comparable {
          * set.
          * <p>
          * Any value contained in this data-set may be selected and included more
-         * than once.
+         * than once. The selected <tt>Value</tt> instances are referenced rather
+         * than duplicated, so their correlations are preserved.
          * <p>
          * The new data-set will not have the same sort or inversion states as this
          * data-set.
@@ -2136,30 +4393,195 @@ public class DataSet implements Comparable {
          *            number of values to include
          * @return a new <tt>DataSet</tt> instance
          */
-        public DataSet getRandomValues(int count) {
+        public synchronized DataSet getRandomValues(int count) {
                 DataSet ds = null;
+                int c = getCount();
 
                 if (count > 0) {
                         ds = new DataSet();
 
-                        for (int x = 0; x < count; x++) {
-                                ds.addValue(getRandomValue());
+                        if (c > 0) {
+                                Random random = SplitRandom.current();
+                                List list = new ArrayList(count);
+
+                                doMaintenance();
+
+                                for (int x = 0; x < count; x++) {
+                                        list.add(values.get(random.nextInt(c)));
+                                }
+
+                                ds.values = list;
+                        }
+                }
+
+                return ds;
+        }
+
+        /**
+         * Will create a new primitive-backed <tt>DataSet</tt> with a random
+         * sample of the values of this set, using the random generator of the
+         * calling thread.
+         * <p>
+         * See <tt>getSample(int, boolean, long)</tt> for details.
+         * 
+         * @param count
+         *            number of values to include
+         * @param replacement
+         *            <tt>true</tt> if a value may be selected more than once
+         * @return a new <tt>DataSet</tt> instance, <tt>null</tt> if the count is
+         *         not positive
+         */
+        public DataSet getSample(int count, boolean replacement) {
+                return getSample(count, replacement, SplitRandom.current());
+        }
+
+        /**
+         * Will create a new primitive-backed <tt>DataSet</tt> with a random
+         * sample of the values of this set. The same seed always produces the
+         * same sample of the same data set.
+         * <p>
+         * With replacement, any value may be selected more than once. Without
+         * replacement, each value is selected at most once and the sample size is
+         * limited to the size of this data set.
+         * <p>
+         * All indexes are drawn in one pass while holding the lock once. The new
+         * data set only stores numerical values, correlations are not carried
+         * over. Use <tt>getRandomValues(int)</tt> to keep the original
+         * <tt>Value</tt> instances.
+         * 
+         * @param count
+         *            number of values to include
+         * @param replacement
+         *            <tt>true</tt> if a value may be selected more than once
+         * @param seed
+         *            seed of the random generator
+         * @return a new <tt>DataSet</tt> instance, <tt>null</tt> if the count is
+         *         not positive
+         */
+        public DataSet getSample(int count, boolean replacement, long seed) {
+                return getSample(count, replacement, new SplitRandom(seed));
+        }
+
+        /**
+         * Internal method drawing a sample with the specified generator.
+         */
+        private synchronized DataSet getSample(int count, boolean replacement,
+                        Random random) {
+                DataSet ds = null;
+                int c = getCount();
+
+                if (count <= 0) {
+                        return null;
+                }
+
+                if (!replacement) {
+                        count = Math.min(count, c);
+                }
+
+                double sample[] = new double[c > 0 ? count : 0];
+
+                doMaintenance();
+
+                if (c == 0) {
+                        // Nothing to draw from
+                } else if (replacement) {
+                        for (int i = 0; i < count; i++) {
+                                sample[i] = doubleAt(random.nextInt(c));
+                        }
+                } else if (count < c / 4) {
+                        // Floyd's algorithm, memory proportional to the sample
+                        DoubleIntMap chosen = new DoubleIntMap(count);
+                        int n = 0;
+
+                        for (int j = c - count; j < c; j++) {
+                                int t = random.nextInt(j + 1);
+
+                                if (chosen.get(t) != DoubleIntMap.MISSING) {
+                                        t = j;
+                                }
+
+                                chosen.put(t, n);
+                                sample[n++] = doubleAt(t);
+                        }
+                } else {
+                        // Partial Fisher-Yates shuffle of the indexes
+                        int index[] = new int[c];
+
+                        for (int i = 0; i < c; i++) {
+                                index[i] = i;
+                        }
+
+                        for (int i = 0; i < count; i++) {
+                                int j = i + random.nextInt(c - i);
+                                int t = index[j];
+
+                                index[j] = index[i];
+                                index[i] = t;
+                                sample[i] = doubleAt(t);
                         }
                 }
 
+                ds = wrap(sample);
+
+                log.debug("Sampled " + sample.length + " out of " + c + " values");
+
                 return ds;
         }
 
         /**
          * Creates a new sorted data set with the containing values.
+         * <p>
+         * The new data set is a read-only view sharing the sorted values of this
+         * data set: nothing is copied until it is modified. The values are only
+         * sorted again once this data set is modified.
          * 
          * @return a sorted DataSet object
          */
-        public DataSet getSorted() {
-                DataSet ds = null;
+        public synchronized DataSet getSorted() {
+                return getSorted(isReversed);
+        }
+
+        /**
+         * Internal method creating a sorted view of this data set. The sorted
+         * values are computed once and shared by every view until this data set
+         * is modified, so repeated calls (as done by the median, minimum and
+         * maximum) only sort once.
+         * 
+         * @param reversed
+         *            <tt>true</tt> for descending order
+         * @return a new sorted data set
+         */
+        private synchronized DataSet getSorted(boolean reversed) {
+                DataSet ds = new DataSet();
+
+                if (values != null) {
+                        long start = started();
+                        boolean hit = sortedCache != null;
+
+                        if (!hit) {
+                                doMaintenance();
+
+                                List list = copy(values);
 
-                ds = getCopy();
-                ds.setSorted(true);
+                                sort(list, 0, list.size(), reversed);
+
+                                sortedCache = list;
+                                isSortedCacheReversed = reversed;
+                        }
+
+                        // The cache is never changed in place, no need to track the view.
+                        // It is read backward for the opposite order.
+                        ds.values = isSortedCacheReversed == reversed ? sortedCache
+                                        : new ReversedList(sortedCache);
+                        ds.isShared = true;
+                        ds.sortedCount = sortedCache.size();
+
+                        record(hit ? Metrics.SORTED_HIT : Metrics.SORTED_MISS,
+                                        sortedCache.size(), start);
+                }
+
+                ds.isSorted = true;
+                ds.isReversed = reversed;
 
                 return ds;
         }
@@ -2182,6 +4604,9 @@ public class DataSet implements Comparable {
          * <p>
          * If the requested size is larger than the number of values currently in
          * the data set, then only the available values will be returned.
+         * <p>
+         * The new data set is a view sharing the values of this data set: the
+         * values are only copied when either data set is modified.
          * 
          * @param size
          *            number of values to be taken
@@ -2194,7 +4619,8 @@ public class DataSet implements Comparable {
                 count = getCount();
 
                 if (count > 0 && Nth > 0) {
-                        ds = new DataSet(values.subList(0, Math.min(Nth, count)));
+                        doMaintenance();
+                        ds = view(0, Math.min(Nth, count));
                 }
 
                 return ds;
@@ -2218,6 +4644,9 @@ public class DataSet implements Comparable {
          * <p>
          * If the requested size is larger than the number of values currently in
          * the data set, then only the available values will be returned.
+         * <p>
+         * The new data set is a view sharing the values of this data set: the
+         * values are only copied when either data set is modified.
          * 
          * @param size
          *            number of values to be taken
@@ -2231,8 +4660,9 @@ public class DataSet implements Comparable {
                 count = getCount();
 
                 if (count > 0 && Nth > 0) {
+                        doMaintenance();
                         start = count - Nth;
-                        ds = new DataSet(values.subList(start > 0 ? start : 0, count));
+                        ds = view(start > 0 ? start : 0, count);
                 }
 
                 return ds;
@@ -2268,7 +4698,15 @@ public class DataSet implements Comparable {
          * With a deep copy, if one or more values change in the original copy, the
          * correstponding values will not be changed in the new copy.
          * <p>
-         * TODO: Confirm the two types of copy actually work!
+         * A shallow copy takes constant time: it shares our storage, and
+         * whichever data set changes first takes its own copy of it. The storage
+         * of this data set is left as is; a chunked data set (see
+         * <tt>setChunked()</tt>) shares its chunks, and only the chunks later
+         * changed by either side are duplicated. The values of a primitive-backed
+         * data set are created on demand, so both kinds of copy share its
+         * primitive arrays until either side changes them, and then copy them in
+         * bulk. The sort state is copied as is, so a sorted copy is not sorted
+         * again.
          * 
          * @param deepCopy
          *            <tt>true</tt> will create copies, <tt>false</tt> will create
@@ -2278,23 +4716,153 @@ public class DataSet implements Comparable {
         public synchronized DataSet getCopy(boolean deepCopy) {
                 DataSet ds = null;
 
+                long start = started();
+
                 ds = new DataSet();
 
-                if (deepCopy) {
-                        // Duplicate each value
-                        for (int i = 0; i < values.size(); i++) {
-                                ds.add(new Value(get(i)));
+                if (values != null && values.size() > 0) {
+                        doMaintenance();
+
+                        if (isPrimitive(values)) {
+                                // Values are created on demand, always a deep copy
+                                ds.values = snapshot(values);
+                        } else if (deepCopy) {
+                                // Duplicate each value, in storage order
+                                List stored = storage(values);
+                                int n = stored.size();
+                                List list = isChunked ? (List) new ChunkedList()
+                                                : new ArrayList(n);
+
+                                for (int i = 0; i < n; i++) {
+                                        list.add(new Value((Value) stored.get(i)));
+                                }
+
+                                ds.values = values instanceof ReversedList ? (List) new ReversedList(list)
+                                                : list;
+                        } else if (source != null || storage(values) instanceof ChunkedList) {
+                                // A view owns no storage to share
+                                ds.values = snapshot(values);
+                        } else {
+                                // Shared until either side changes it, see beforeChange()
+                                ds.values = values;
+                                ds.isShared = true;
+                                isShared = true;
                         }
-                } else {
-                        ds.values = new ArrayList(values);
+
+                        ds.sortedCount = sortedCount;
+                        ds.isDirty = isDirty;
                 }
 
-                ds.setReversed(isReversed());
-                ds.setSorted(isSorted());
+                ds.isSorted = isSorted;
+                ds.isReversed = isReversed;
+                ds.isColumnar = isColumnar;
+                ds.isChunked = isChunked;
+                ds.isModified = true;
+
+                record(Metrics.COPY, ds.getCount(), start);
 
                 return ds;
         }
 
+        // ///////////////////////////////////////////////////////////////////////
+        // Export Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Writes the numerical values of this data set as text, separated by the
+         * specified delimiter, to the specified destination (a <tt>Writer</tt>,
+         * a <tt>StringBuffer</tt>, ...).
+         * <p>
+         * The values are formatted through a fixed-size buffer without creating
+         * <tt>Value</tt> instances (see <tt>TextOutput</tt>), so the memory used
+         * does not depend on the count of values; a <tt>Writer</tt> receives
+         * whole blocks of characters and is flushed at the end. The data set is
+         * locked while writing.
+         * 
+         * @param out
+         *            destination of the text
+         * @param delimiter
+         *            text written between two values
+         * @throws IOException
+         *             if the destination fails
+         */
+        public synchronized void writeValues(Appendable out, String delimiter)
+                        throws IOException {
+                write(new TextOutput(out), delimiter, null);
+        }
+
+        /**
+         * Writes the numerical values of this data set as text, one per line.
+         * See <tt>writeValues(Appendable, String)</tt>.
+         * 
+         * @param out
+         *            destination of the text
+         * @throws IOException
+         *             if the destination fails
+         */
+        public synchronized void writeLines(Appendable out) throws IOException {
+                write(new TextOutput(out), null, LINE_SEPARATOR);
+        }
+
+        /**
+         * Writes the numerical values of this data set as UTF-8 text, separated
+         * by the specified delimiter, to the specified channel. See
+         * <tt>writeValues(Appendable, String)</tt>.
+         * 
+         * @param channel
+         *            destination of the text
+         * @param delimiter
+         *            text written between two values
+         * @throws IOException
+         *             if the channel fails
+         */
+        public synchronized void writeValues(WritableByteChannel channel,
+                        String delimiter) throws IOException {
+                write(new TextOutput(channel, Charset.forName("UTF-8")), delimiter,
+                                null);
+        }
+
+        /**
+         * Writes the numerical values of this data set as UTF-8 text, one per
+         * line, to the specified channel. See
+         * <tt>writeValues(Appendable, String)</tt>.
+         * 
+         * @param channel
+         *            destination of the text
+         * @throws IOException
+         *             if the channel fails
+         */
+        public synchronized void writeLines(WritableByteChannel channel)
+                        throws IOException {
+                write(new TextOutput(channel, Charset.forName("UTF-8")), null,
+                                LINE_SEPARATOR);
+        }
+
+        /**
+         * Internal method writing our values, each followed by the terminator and
+         * separated by the delimiter (either of which may be <tt>null</tt>).
+         */
+        private void write(TextOutput output, String delimiter, String terminator)
+                        throws IOException {
+                int n = prepare();
+
+                log.debug("Writing " + n + " value(s)!");
+
+                for (int i = 0; i < n; i++) {
+                        if (delimiter != null && i > 0) {
+                                output.write(delimiter);
+                        }
+
+                        output.write(doubleAt(i));
+
+                        if (terminator != null) {
+                                output.write(terminator);
+                        }
+                }
+
+                output.finish();
+        }
+
         ////////////////////////////////////////////////////////////////////////////
         // /
         // POJO Functionality
@@ -2357,14 +4925,16 @@ public class DataSet implements Comparable {
         /**
          * Will print all the value instances contained within for simple visual
          * output.
+         * <p>
+         * The whole text is held in memory, large data sets are better written
+         * out with <tt>writeValues()</tt>.
          */
-        public String printValues() {
+        public synchronized String printValues() {
                 StringBuffer buf = new StringBuffer();
-                int count = 0;
-
                 Iterator it = getIterator();
+                int count = getCount();
 
-                while (it.hasNext()) {
+                for (int i = 1; i <= count; i++) {
                         Value v = (Value) it.next();
 
                         if (v != null) {
@@ -2373,7 +4943,7 @@ public class DataSet implements Comparable {
                                 buf.append("NULL");
                         }
 
-                        if (++count != getCount()) {
+                        if (i != count) {
                                 buf.append(", ");
                         }
                 }
@@ -2400,8 +4970,33 @@ public class DataSet implements Comparable {
                 buf.add("Reversed", isReversed());
                 buf.add("Dirty", isDirty);
                 buf.add("Modified", isModified());
-                buf.add("Data", getValues());
+                buf.add("Data", preview());
 
                 return (buf.toString());
         }
+
+        /**
+         * Formats our first values for <tt>toString()</tt>, followed by the
+         * count of the values not shown.
+         */
+        private synchronized String preview() {
+                StringBuffer buf = new StringBuffer("[");
+                char text[] = new char[32];
+                int n = prepare();
+                int shown = Math.min(n, PREVIEW_COUNT);
+
+                for (int i = 0; i < shown; i++) {
+                        if (i > 0) {
+                                buf.append(", ");
+                        }
+
+                        buf.append(text, 0, TextOutput.format(doubleAt(i), text, 0));
+                }
+
+                if (n > shown) {
+                        buf.append(", ... (").append(n - shown).append(" more)");
+                }
+
+                return buf.append(']').toString();
+        }
 }
\ No newline at end of file
@@ -0,0 +1,638 @@
+/*
+ * DataTable.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The <code>DataTable</code> class holds several named columns of values
+ * sharing the same rows, such as one column per metric of a series of
+ * samples. Each column is stored as a primitive array and read as a
+ * primitive-backed <tt>DataSet</tt>, so every statistic of <tt>DataSet</tt>
+ * is available per column.
+ * <p>
+ * Sorting the table by one of its columns moves the rows of all the columns
+ * along. Filtering the table creates a read-only table sharing the columns,
+ * which only holds a selection vector: the indexes of the selected rows, in
+ * order. Sorting a filtered table only reorders its selection.
+ * <p>
+ * Columns handed out by <tt>getColumn()</tt> and filtered tables share the
+ * storage of this table until it changes, at which point this table takes its
+ * own copy (like the views of a data set).
+ * <p>
+ * Column statistics (<tt>forEachColumn()</tt>, <tt>getSummaries()</tt>,
+ * ...) run in parallel when an <tt>ExecutorService</tt> is provided;
+ * otherwise they run in the calling thread.
+ * <p>
+ * All operations are synchronized on the table instance.
+ */
+public class DataTable {
+
+        /**
+         * A computation made on each column by <tt>forEachColumn()</tt>.
+         */
+        public interface ColumnTask {
+                Object run(DataSet column);
+        }
+
+        /** Log4J library */
+        private static final Logger log = Logger.getLogger(DataTable.class);
+
+        private final String names[];
+        private final Map indexes = new HashMap(); // column index by name
+        private final ExecutorService executor;
+
+        private DoubleList columns[];
+        private int selection[] = null; // selected rows, null for all rows
+        private boolean isShared = false; // columns handed out or filtered
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Constructors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Constructs an empty table with the specified columns, computing
+         * statistics in the calling thread.
+         *
+         * @param names
+         *            of the columns, distinct
+         */
+        public DataTable(String names[]) {
+                this(names, null);
+        }
+
+        /**
+         * Constructs an empty table with the specified columns.
+         *
+         * @param names
+         *            of the columns, distinct
+         * @param executor
+         *            used to process the columns in parallel, <tt>null</tt> to
+         *            process them in the calling thread
+         */
+        public DataTable(String names[], ExecutorService executor) {
+                if (names == null || names.length == 0) {
+                        throw new IllegalArgumentException("No columns");
+                }
+
+                this.names = names.clone();
+                this.executor = executor;
+
+                columns = new DoubleList[names.length];
+
+                for (int i = 0; i < names.length; i++) {
+                        if (names[i] == null) {
+                                throw new IllegalArgumentException("Null column name");
+                        }
+
+                        if (indexes.put(names[i], Integer.valueOf(i)) != null) {
+                                throw new IllegalArgumentException("Duplicate column: "
+                                                + names[i]);
+                        }
+
+                        columns[i] = new DoubleList(0);
+                }
+        }
+
+        /**
+         * Constructs a table from the values of aligned data sets, one column per
+         * data set. The values are copied.
+         *
+         * @param names
+         *            of the columns, distinct
+         * @param values
+         *            data sets holding the same number of values, in row order
+         * @param executor
+         *            used to process the columns in parallel, <tt>null</tt> to
+         *            process them in the calling thread
+         */
+        public DataTable(String names[], DataSet values[], ExecutorService executor) {
+                this(names, executor);
+
+                if (values == null || values.length != names.length) {
+                        throw new IllegalArgumentException("Expected " + names.length
+                                        + " data sets");
+                }
+
+                for (int i = 0; i < values.length; i++) {
+                        synchronized (values[i]) {
+                                int n = values[i].prepare();
+
+                                if (i > 0 && n != columns[0].size()) {
+                                        throw new IllegalArgumentException(
+                                                        "Unaligned data sets: " + columns[0].size()
+                                                                        + " and " + n + " values");
+                                }
+
+                                for (int j = 0; j < n; j++) {
+                                        columns[i].addDouble(values[i].valueAt(j));
+                                }
+                        }
+                }
+        }
+
+        /**
+         * Constructs a read-only table selecting rows of the specified columns.
+         */
+        private DataTable(DataTable table, int selection[]) {
+                this.names = table.names;
+                this.indexes.putAll(table.indexes);
+                this.executor = table.executor;
+                this.columns = table.columns;
+                this.selection = selection;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Add Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Adds a row to this table.
+         *
+         * @param row
+         *            one value per column, in column order
+         * @throws IllegalStateException
+         *             if this table is a filtered table
+         */
+        public synchronized void addRow(double row[]) {
+                if (row == null || row.length != columns.length) {
+                        throw new IllegalArgumentException("Expected " + columns.length
+                                        + " values per row");
+                }
+
+                beforeChange();
+
+                for (int i = 0; i < columns.length; i++) {
+                        columns[i].addDouble(row[i]);
+                }
+        }
+
+        /**
+         * Adds several rows to this table.
+         *
+         * @param rows
+         *            rows of one value per column, in column order
+         * @throws IllegalStateException
+         *             if this table is a filtered table
+         */
+        public synchronized void addRows(double rows[][]) {
+                if (rows != null) {
+                        for (int i = 0; i < rows.length; i++) {
+                                addRow(rows[i]);
+                        }
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Accessors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the names of the columns of this table.
+         *
+         * @return a new array of names, in column order
+         */
+        public String[] getColumnNames() {
+                return names.clone();
+        }
+
+        /**
+         * Counts the columns of this table.
+         *
+         * @return a count of columns
+         */
+        public int getColumnCount() {
+                return names.length;
+        }
+
+        /**
+         * Counts the rows of this table, only the selected ones for a filtered
+         * table.
+         *
+         * @return a count of rows
+         */
+        public synchronized int getRowCount() {
+                return selection != null ? selection.length : columns[0].size();
+        }
+
+        /**
+         * Requests to know if this table is a filtered table, holding a selection
+         * of the rows of another table.
+         *
+         * @return true if it is, false otherwise
+         */
+        public synchronized boolean isFiltered() {
+                return selection != null;
+        }
+
+        /**
+         * Requests the value of a column at the specified row.
+         *
+         * @param row
+         *            index of the row
+         * @param column
+         *            name of the column
+         * @return a value object, <tt>null</tt> if the row is out of range
+         */
+        public synchronized Value getValueAt(int row, String column) {
+                DoubleList list = columns[indexOf(column)];
+
+                if (row < 0 || row >= getRowCount()) {
+                        return null;
+                }
+
+                return new Value(list.getDouble(rowAt(row)));
+        }
+
+        /**
+         * Requests the values of all columns at the specified row.
+         *
+         * @param row
+         *            index of the row
+         * @return a new array of values in column order, <tt>null</tt> if the row
+         *         is out of range
+         */
+        public synchronized double[] getRow(int row) {
+                if (row < 0 || row >= getRowCount()) {
+                        return null;
+                }
+
+                double values[] = new double[columns.length];
+                int index = rowAt(row);
+
+                for (int i = 0; i < columns.length; i++) {
+                        values[i] = columns[i].getDouble(index);
+                }
+
+                return values;
+        }
+
+        /**
+         * Requests the values of a column as a primitive-backed data set, in row
+         * order.
+         * <p>
+         * For a table which is not filtered, the data set shares the storage of
+         * the column until either of them changes. For a filtered table, the
+         * selected values are copied.
+         *
+         * @param column
+         *            name of the column
+         * @return a new data set instance
+         */
+        public synchronized DataSet getColumn(String column) {
+                return column(indexOf(column));
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Filter & Sort Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Selects the rows whose value in a column satisfies the specified
+         * condition. No values are copied: the new table shares the columns of
+         * this table and only holds the indexes of the selected rows.
+         *
+         * @param column
+         *            name of the column tested
+         * @param predicate
+         *            condition to be satisfied
+         * @return a new, read-only, table
+         */
+        public synchronized DataTable filter(String column,
+                        Transform.Predicate predicate) {
+                if (predicate == null) {
+                        throw new IllegalArgumentException("Predicate is null");
+                }
+
+                DoubleList list = columns[indexOf(column)];
+                int n = getRowCount();
+                int selected[] = new int[n];
+                int count = 0;
+
+                for (int i = 0; i < n; i++) {
+                        int index = rowAt(i);
+
+                        if (predicate.test(list.getDouble(index))) {
+                                selected[count++] = index;
+                        }
+                }
+
+                int trimmed[] = new int[count];
+                System.arraycopy(selected, 0, trimmed, 0, count);
+
+                isShared = true;
+
+                return new DataTable(this, trimmed);
+        }
+
+        /**
+         * Selects the rows whose value in a column lies within the specified
+         * range, bounds included. See <tt>filter()</tt>.
+         *
+         * @param column
+         *            name of the column tested
+         * @param low
+         *            lower bound, inclusive
+         * @param high
+         *            upper bound, inclusive
+         * @return a new, read-only, table
+         */
+        public DataTable filter(String column, final double low,
+                        final double high) {
+                return filter(column, new Transform.Predicate() {
+                        public boolean test(double value) {
+                                return value >= low && value <= high;
+                        }
+                });
+        }
+
+        /**
+         * Sorts the rows of this table by the values of a column, moving the
+         * values of all the other columns along. Rows with equal values keep
+         * their order. A filtered table only reorders its selection.
+         *
+         * @param column
+         *            name of the column sorted
+         * @param reversed
+         *            <tt>true</tt> for descending order
+         */
+        public synchronized void sort(String column, boolean reversed) {
+                DoubleList list = columns[indexOf(column)];
+                int n = getRowCount();
+
+                if (selection != null) {
+                        double keys[] = new double[n];
+
+                        for (int i = 0; i < n; i++) {
+                                keys[i] = list.getDouble(selection[i]);
+                        }
+
+                        int order[] = Sorter.order(keys, 0, n, reversed);
+                        int sorted[] = new int[n];
+
+                        for (int i = 0; i < n; i++) {
+                                sorted[i] = selection[order[i]];
+                        }
+
+                        // Never changed in place, the array may be shared
+                        selection = sorted;
+                } else if (n > 1) {
+                        beforeChange();
+
+                        // Our columns may have been replaced by copies
+                        int order[] = Sorter.order(columns[indexOf(column)].array(), 0, n,
+                                        reversed);
+
+                        for (int i = 0; i < columns.length; i++) {
+                                columns[i].permute(0, order);
+                        }
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Statistics Section
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Runs the specified task on the data set of every column (see
+         * <tt>getColumn()</tt>), in parallel when an executor is available.
+         *
+         * @param task
+         *            computation made on each column
+         * @return the result of each column, in column order
+         */
+        public Object[] forEachColumn(final ColumnTask task) {
+                if (task == null) {
+                        throw new IllegalArgumentException("Task is null");
+                }
+
+                DataSet sets[] = new DataSet[columns.length];
+
+                synchronized (this) {
+                        for (int i = 0; i < sets.length; i++) {
+                                sets[i] = column(i);
+                        }
+                }
+
+                Object results[] = new Object[sets.length];
+
+                if (executor == null || sets.length == 1) {
+                        for (int i = 0; i < sets.length; i++) {
+                                results[i] = task.run(sets[i]);
+                        }
+
+                        return results;
+                }
+
+                List futures = new ArrayList(sets.length);
+
+                for (int i = 0; i < sets.length; i++) {
+                        final DataSet set = sets[i];
+
+                        futures.add(executor.submit(new Callable() {
+                                public Object call() {
+                                        return task.run(set);
+                                }
+                        }));
+                }
+
+                try {
+                        for (int i = 0; i < sets.length; i++) {
+                                results[i] = ((Future) futures.get(i)).get();
+                        }
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while computing columns");
+                } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+
+                        if (cause instanceof RuntimeException) {
+                                throw (RuntimeException) cause;
+                        }
+
+                        throw new IllegalStateException(String.valueOf(cause));
+                }
+
+                return results;
+        }
+
+        /**
+         * Computes the summary (count, mean, variance, ...) of every column, see
+         * <tt>DataSet.getSummary()</tt>.
+         *
+         * @return a new array of summaries, in column order
+         */
+        public Summary[] getSummaries() {
+                Object results[] = forEachColumn(new ColumnTask() {
+                        public Object run(DataSet column) {
+                                return column.getSummary();
+                        }
+                });
+
+                Summary summaries[] = new Summary[results.length];
+                System.arraycopy(results, 0, summaries, 0, results.length);
+
+                return summaries;
+        }
+
+        /**
+         * Calculates the mean of every column, see <tt>DataSet.getMean()</tt>.
+         *
+         * @return a new array of values in column order, <tt>null</tt> elements
+         *         for empty columns
+         */
+        public Value[] getMeans() {
+                return toValues(forEachColumn(new ColumnTask() {
+                        public Object run(DataSet column) {
+                                return column.getMean();
+                        }
+                }));
+        }
+
+        /**
+         * Calculates the median of every column, see <tt>DataSet.getMedian()</tt>.
+         *
+         * @return a new array of values in column order, <tt>null</tt> elements
+         *         for empty columns
+         */
+        public Value[] getMedians() {
+                return toValues(forEachColumn(new ColumnTask() {
+                        public Object run(DataSet column) {
+                                return column.getMedian();
+                        }
+                }));
+        }
+
+        /**
+         * Calculates the standard deviation of every column, see
+         * <tt>DataSet.getStandardDeviation()</tt>.
+         *
+         * @return a new array of values in column order, <tt>null</tt> elements
+         *         for columns of less than two values
+         */
+        public Value[] getStandardDeviations() {
+                return toValues(forEachColumn(new ColumnTask() {
+                        public Object run(DataSet column) {
+                                return column.getStandardDeviation();
+                        }
+                }));
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        private int indexOf(String column) {
+                Integer index = (Integer) indexes.get(column);
+
+                if (index == null) {
+                        throw new IllegalArgumentException("Unknown column: " + column);
+                }
+
+                return index.intValue();
+        }
+
+        /**
+         * Converts a row of this table into an index of the columns.
+         */
+        private int rowAt(int row) {
+                return selection != null ? selection[row] : row;
+        }
+
+        /**
+         * Creates the data set of the column at the specified index.
+         */
+        private DataSet column(int index) {
+                DoubleList list = columns[index];
+
+                if (getRowCount() == 0) {
+                        return new DataSet();
+                }
+
+                if (selection == null) {
+                        isShared = true;
+                        return DataSet.share(list.subList(0, list.size()));
+                }
+
+                DoubleList selected = new DoubleList(selection.length);
+
+                for (int i = 0; i < selection.length; i++) {
+                        selected.addDouble(list.getDouble(selection[i]));
+                }
+
+                return DataSet.wrap(selected);
+        }
+
+        /**
+         * Must be called before the columns are changed in place. If they are
+         * shared with data sets or filtered tables, we take our own copy.
+         */
+        private void beforeChange() {
+                if (selection != null) {
+                        throw new IllegalStateException("Filtered tables are read-only");
+                }
+
+                if (isShared) {
+                        log.debug("Copying shared columns!");
+
+                        DoubleList copies[] = new DoubleList[columns.length];
+
+                        for (int i = 0; i < columns.length; i++) {
+                                copies[i] = columns[i].copy();
+                        }
+
+                        columns = copies;
+                        isShared = false;
+                }
+        }
+
+        private static Value[] toValues(Object results[]) {
+                Value values[] = new Value[results.length];
+                System.arraycopy(results, 0, values, 0, results.length);
+                return values;
+        }
+
+        /**
+         * Returns a string representation of this table.
+         *
+         * @return a string representation of the object.
+         */
+        public synchronized String toString() {
+                return "DataTable[columns=" + names.length + ", rows="
+                                + getRowCount() + (selection != null ? ", filtered" : "")
+                                + "]";
+        }
+}
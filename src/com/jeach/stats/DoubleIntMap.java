@@ -0,0 +1,280 @@
+/*
+ * DoubleIntMap.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jeach.stats;
+
+/**
+ * A small open-addressing hash map from <tt>double</tt> keys to <tt>int</tt>
+ * values, used internally wherever a data set needs to count or index sample
+ * values without boxing them into <tt>Double</tt> instances.
+ * <p>
+ * Keys are canonicalized before hashing so that they follow the numerical
+ * equality used throughout <tt>DataSet</tt>: <tt>-0.0</tt> and <tt>0.0</tt>
+ * are the same key, and all <tt>NaN</tt> bit patterns collapse into one.
+ * <p>
+ * Collisions are resolved with linear probing and removals use backward
+ * shifting, so no tombstones are ever left behind.
+ * <p>
+ * This class is not synchronized, the owning instance is expected to guard
+ * it.
+ */
+final class DoubleIntMap {
+
+        /** Value returned by <tt>get()</tt> when a key is not present */
+        static final int MISSING = -1;
+
+        private static final int MIN_CAPACITY = 16;
+
+        private long keys[];
+        private int values[];
+        private boolean used[];
+        private int size = 0;
+        private int mask;
+
+        /**
+         * Constructs an empty map sized for the specified number of keys.
+         *
+         * @param expected
+         *            number of keys expected to be stored
+         */
+        DoubleIntMap(int expected) {
+                int capacity = MIN_CAPACITY;
+
+                while (capacity < expected * 2 && capacity < (1 << 30)) {
+                        capacity <<= 1;
+                }
+
+                allocate(capacity);
+        }
+
+        /**
+         * Converts a sample value into the bit pattern used as a hash key.
+         *
+         * @param value
+         *            a sample value
+         * @return the canonical bits of the value
+         */
+        static long canonical(double value) {
+                return value == 0.0 ? 0L : Double.doubleToLongBits(value);
+        }
+
+        /**
+         * Requests the number of keys contained in this map.
+         *
+         * @return a count of keys
+         */
+        int size() {
+                return size;
+        }
+
+        /**
+         * Requests the value mapped to the specified key.
+         *
+         * @param key
+         *            a sample value
+         * @return the mapped value, <tt>MISSING</tt> if there is none
+         */
+        int get(double key) {
+                long bits = canonical(key);
+                int i = index(bits);
+
+                while (used[i]) {
+                        if (keys[i] == bits) {
+                                return values[i];
+                        }
+
+                        i = (i + 1) & mask;
+                }
+
+                return MISSING;
+        }
+
+        /**
+         * Maps the specified key to the specified value, replacing any previous
+         * mapping.
+         *
+         * @param key
+         *            a sample value
+         * @param value
+         *            the value to be mapped
+         */
+        void put(double key, int value) {
+                long bits = canonical(key);
+                int i = index(bits);
+
+                while (used[i]) {
+                        if (keys[i] == bits) {
+                                values[i] = value;
+                                return;
+                        }
+
+                        i = (i + 1) & mask;
+                }
+
+                used[i] = true;
+                keys[i] = bits;
+                values[i] = value;
+
+                if (++size * 2 > keys.length) {
+                        rehash(keys.length << 1);
+                }
+        }
+
+        /**
+         * Adds the specified amount to the value mapped to the specified key. A
+         * missing key is considered to be mapped to zero.
+         *
+         * @param key
+         *            a sample value
+         * @param delta
+         *            amount to be added
+         * @return the new mapped value
+         */
+        int increment(double key, int delta) {
+                long bits = canonical(key);
+                int i = index(bits);
+
+                while (used[i]) {
+                        if (keys[i] == bits) {
+                                values[i] += delta;
+                                return values[i];
+                        }
+
+                        i = (i + 1) & mask;
+                }
+
+                used[i] = true;
+                keys[i] = bits;
+                values[i] = delta;
+
+                if (++size * 2 > keys.length) {
+                        rehash(keys.length << 1);
+                }
+
+                return delta;
+        }
+
+        /**
+         * Removes the mapping for the specified key.
+         *
+         * @param key
+         *            a sample value
+         * @return the value that was mapped, <tt>MISSING</tt> if there was none
+         */
+        int remove(double key) {
+                long bits = canonical(key);
+                int i = index(bits);
+
+                while (used[i]) {
+                        if (keys[i] == bits) {
+                                int old = values[i];
+                                shift(i);
+                                size--;
+                                return old;
+                        }
+
+                        i = (i + 1) & mask;
+                }
+
+                return MISSING;
+        }
+
+        /**
+         * Removes all mappings from this map.
+         */
+        void clear() {
+                java.util.Arrays.fill(used, false);
+                size = 0;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        private void allocate(int capacity) {
+                keys = new long[capacity];
+                values = new int[capacity];
+                used = new boolean[capacity];
+                mask = capacity - 1;
+        }
+
+        private int index(long bits) {
+                // Murmur3 finalizer, spreads the exponent bits over the low bits
+                bits ^= bits >>> 33;
+                bits *= 0xff51afd7ed558ccdL;
+                bits ^= bits >>> 33;
+                return (int) bits & mask;
+        }
+
+        /**
+         * Closes the hole left at the specified slot by moving back any entry of
+         * the same probe chain that would otherwise become unreachable.
+         */
+        private void shift(int hole) {
+                int i = hole;
+
+                while (true) {
+                        i = (i + 1) & mask;
+
+                        if (!used[i]) {
+                                break;
+                        }
+
+                        int home = index(keys[i]);
+
+                        // Move the entry if its home slot is not within (hole, i]
+                        if (hole <= i ? (home <= hole || home > i)
+                                        : (home <= hole && home > i)) {
+                                keys[hole] = keys[i];
+                                values[hole] = values[i];
+                                hole = i;
+                        }
+                }
+
+                used[hole] = false;
+        }
+
+        private void rehash(int capacity) {
+                long oldKeys[] = keys;
+                int oldValues[] = values;
+                boolean oldUsed[] = used;
+
+                allocate(capacity);
+
+                for (int j = 0; j < oldKeys.length; j++) {
+                        if (oldUsed[j]) {
+                                int i = index(oldKeys[j]);
+
+                                while (used[i]) {
+                                        i = (i + 1) & mask;
+                                }
+
+                                used[i] = true;
+                                keys[i] = oldKeys[j];
+                                values[i] = oldValues[j];
+                        }
+                }
+        }
+}
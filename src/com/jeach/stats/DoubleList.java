@@ -0,0 +1,706 @@
+/*
+ * DoubleList.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jeach.stats;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list of <tt>Value</tt> instances backed by a primitive <tt>double</tt>
+ * array, used as the storage of 'primitive-backed' data sets.
+ * <p>
+ * Only the numerical values are stored: a new <tt>Value</tt> instance is
+ * created each time an element is read, and the correlations of the
+ * <tt>Value</tt> instances added to the list are not retained. Elements are
+ * matched by numerical value rather than by instance.
+ * <p>
+ * Correlations given through <tt>addDouble(double, Object)</tt> are kept in
+ * a side column of <tt>int</tt> codes parallel to the values (see
+ * <tt>CorrelationColumn</tt>), allocated with the first correlation. The
+ * column is kept aligned by every operation that moves values, and the
+ * correlation is attached again to the <tt>Value</tt> instances read. Once
+ * most of the correlations of the column belong to values removed, the list
+ * takes a compacted column.
+ * <p>
+ * A shared copy (see <tt>share()</tt>) shares the arrays of this list, and
+ * whichever list changes first takes its own copy of them, in one bulk array
+ * copy.
+ * <p>
+ * This class is not synchronized, the owning data set is expected to guard
+ * it.
+ */
+final class DoubleList extends AbstractList implements RandomAccess {
+
+        // Fewest correlations of removed values worth compacting the column for
+        private static final int COMPACT_MINIMUM = 64;
+
+        private double data[];
+        private int size;
+
+        private int codes[] = null;
+        private CorrelationColumn column = null;
+
+        private boolean isShared = false; // arrays shared with a copy
+
+        /**
+         * Constructs an empty list with the specified initial capacity.
+         *
+         * @param capacity
+         *            initial capacity
+         */
+        DoubleList(int capacity) {
+                data = new double[Math.max(capacity, 4)];
+                size = 0;
+        }
+
+        /**
+         * Constructs a list over the first 'size' elements of the specified array.
+         * The array is not copied and now belongs to this list.
+         *
+         * @param data
+         *            array of values
+         * @param size
+         *            number of values used in the array
+         */
+        DoubleList(double data[], int size) {
+                this.data = data;
+                this.size = size;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Primitive Accessors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the numerical value at the specified index, without creating
+         * a <tt>Value</tt> instance.
+         *
+         * @param index
+         *            of the value
+         * @return a double value
+         */
+        double getDouble(int index) {
+                if (index >= size) {
+                        throw new IndexOutOfBoundsException("Index: " + index
+                                        + ", Size: " + size);
+                }
+
+                return data[index];
+        }
+
+        /**
+         * Appends the specified numerical value to this list.
+         *
+         * @param value
+         *            to be appended
+         */
+        void addDouble(double value) {
+                own();
+
+                if (size == data.length) {
+                        grow(size + 1);
+                }
+
+                if (codes != null) {
+                        codes[size] = CorrelationColumn.NONE;
+                }
+
+                data[size++] = value;
+                modCount++;
+        }
+
+        /**
+         * Appends the specified numerical value to this list, with its
+         * correlation.
+         *
+         * @param value
+         *            to be appended
+         * @param correlation
+         *            object correlated to the value, possibly <tt>null</tt>
+         */
+        void addDouble(double value, Object correlation) {
+                insert(size, value, correlation);
+        }
+
+        /**
+         * Inserts the specified numerical value in this list, with its
+         * correlation.
+         *
+         * @param index
+         *            at which the value is inserted
+         * @param value
+         *            to be inserted
+         * @param correlation
+         *            object correlated to the value, possibly <tt>null</tt>
+         */
+        void insert(int index, double value, Object correlation) {
+                if (index < 0 || index > size) {
+                        throw new IndexOutOfBoundsException("Index: " + index
+                                        + ", Size: " + size);
+                }
+
+                own();
+
+                if (correlation != null && codes == null) {
+                        if (column == null) {
+                                column = new CorrelationColumn();
+                        }
+
+                        codes = new int[data.length];
+                }
+
+                if (size == data.length) {
+                        grow(size + 1);
+                }
+
+                System.arraycopy(data, index, data, index + 1, size - index);
+                data[index] = value;
+
+                if (codes != null) {
+                        System.arraycopy(codes, index, codes, index + 1, size - index);
+                        codes[index] = column.encode(value, correlation);
+                }
+
+                size++;
+                modCount++;
+        }
+
+        /**
+         * Requests the correlation of the value at the specified index.
+         *
+         * @param index
+         *            of the value
+         * @return the correlation, <tt>null</tt> if none
+         */
+        Object getCorrelation(int index) {
+                double value = getDouble(index);
+
+                if (codes == null || codes[index] == CorrelationColumn.NONE) {
+                        return null;
+                }
+
+                return column.decode(value, codes[index]);
+        }
+
+        /**
+         * Requests to know if any value of this list was given a correlation.
+         *
+         * @return true if so, false otherwise
+         */
+        boolean hasCorrelations() {
+                return codes != null;
+        }
+
+        /**
+         * Moves the value at one index to another, shifting the values in
+         * between by one position. Correlations follow their values.
+         *
+         * @param from
+         *            current index of the value
+         * @param to
+         *            new index of the value
+         */
+        void move(int from, int to) {
+                if (from == to) {
+                        return;
+                }
+
+                own();
+
+                double d = data[from];
+
+                if (from < to) {
+                        System.arraycopy(data, from + 1, data, from, to - from);
+                } else {
+                        System.arraycopy(data, to, data, to + 1, from - to);
+                }
+
+                data[to] = d;
+
+                if (codes != null) {
+                        int c = codes[from];
+
+                        if (from < to) {
+                                System.arraycopy(codes, from + 1, codes, from, to - from);
+                        } else {
+                                System.arraycopy(codes, to, codes, to + 1, from - to);
+                        }
+
+                        codes[to] = c;
+                }
+
+                modCount++;
+        }
+
+        /**
+         * Rearranges a range of this list so that the value at index
+         * <tt>from + i</tt> is the one previously at <tt>from + order[i]</tt>.
+         * Correlations follow their values.
+         *
+         * @param from
+         *            index of the first value of the range
+         * @param order
+         *            permutation of the range, see <tt>Sorter.order()</tt>
+         */
+        void permute(int from, int order[]) {
+                own();
+
+                int n = order.length;
+                double d[] = new double[n];
+
+                for (int i = 0; i < n; i++) {
+                        d[i] = data[from + order[i]];
+                }
+
+                if (codes != null) {
+                        int c[] = new int[n];
+
+                        for (int i = 0; i < n; i++) {
+                                c[i] = codes[from + order[i]];
+                        }
+
+                        System.arraycopy(c, 0, codes, from, n);
+                }
+
+                System.arraycopy(d, 0, data, from, n);
+                modCount++;
+        }
+
+        /**
+         * Removes the values satisfying the specified condition in a single
+         * pass, moving each value kept (and its correlation code) at most once.
+         *
+         * @param predicate
+         *            condition satisfied by the values to be removed
+         * @param from
+         *            index of the first value removed, known to satisfy the
+         *            condition, the values before it being kept
+         * @param removed
+         *            list receiving the values removed with their correlations,
+         *            in order, <tt>null</tt> if not needed
+         * @return the count of values removed
+         */
+        int removeIf(Transform.Predicate predicate, int from, DoubleList removed) {
+                int kept = from;
+
+                own();
+
+                if (removed != null) {
+                        removed.addDouble(data[from], getCorrelation(from));
+                }
+
+                for (int i = from + 1; i < size; i++) {
+                        double value = data[i];
+
+                        if (predicate.test(value)) {
+                                if (removed != null) {
+                                        removed.addDouble(value, getCorrelation(i));
+                                }
+                        } else {
+                                if (kept != i) {
+                                        data[kept] = value;
+
+                                        if (codes != null) {
+                                                codes[kept] = codes[i];
+                                        }
+                                }
+
+                                kept++;
+                        }
+                }
+
+                int count = size - kept;
+
+                if (count > 0) {
+                        size = kept;
+                        modCount++;
+                        compact();
+                }
+
+                return count;
+        }
+
+        /**
+         * Estimates the heap bytes used by the arrays of this list.
+         *
+         * @return an estimate in bytes
+         */
+        long memory() {
+                long bytes = 16L + 8L * data.length;
+
+                if (codes != null) {
+                        bytes += 16L + 4L * codes.length;
+                }
+
+                return bytes;
+        }
+
+        /**
+         * Creates a copy of this list, trimmed to its size. The correlation
+         * column is shared, only the codes are copied, unless it is worth
+         * compacting for the copy.
+         *
+         * @return a new list instance
+         */
+        DoubleList copy() {
+                DoubleList list = new DoubleList(Arrays.copyOf(data, Math.max(size,
+                                1)), size);
+
+                if (codes != null) {
+                        list.codes = Arrays.copyOf(codes, list.data.length);
+                        list.column = column;
+                        list.compact();
+                }
+
+                return list;
+        }
+
+        /**
+         * Creates a copy of this list in constant time. The arrays of values and
+         * codes are shared until either list changes them, and the correlation
+         * column until either list compacts it.
+         *
+         * @return a new list instance
+         */
+        DoubleList share() {
+                DoubleList list = new DoubleList(data, size);
+
+                list.codes = codes;
+                list.column = column;
+                list.isShared = true;
+                isShared = true;
+
+                return list;
+        }
+
+        /**
+         * Requests the backing array of this list. Only the first
+         * <tt>size()</tt> elements are meaningful, and the array must not be
+         * modified by the caller.
+         *
+         * @return the backing array
+         */
+        double[] array() {
+                return data;
+        }
+
+        /**
+         * Sorts a range of this list in numerical order, see <tt>Sorter</tt>.
+         *
+         * @param from
+         *            index of the first element, inclusive
+         * @param to
+         *            index of the last element, exclusive
+         * @param reversed
+         *            <tt>true</tt> for descending order
+         */
+        void sort(int from, int to, boolean reversed) {
+                own();
+
+                if (codes == null) {
+                        Sorter.sort(data, from, to, reversed);
+                        modCount++;
+                } else {
+                        permute(from, Sorter.order(data, from, to, reversed));
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // List Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        public int size() {
+                return size;
+        }
+
+        public Object get(int index) {
+                Value value = new Value(getDouble(index));
+                Object correlation = getCorrelation(index);
+
+                if (correlation != null) {
+                        value.addCorrelation(correlation);
+                }
+
+                return value;
+        }
+
+        public Object set(int index, Object element) {
+                Object old = get(index);
+
+                own();
+                data[index] = toDouble(element);
+
+                if (codes != null) {
+                        codes[index] = CorrelationColumn.NONE;
+                        compact();
+                }
+
+                return old;
+        }
+
+        public boolean add(Object element) {
+                addDouble(toDouble(element));
+                return true;
+        }
+
+        public void add(int index, Object element) {
+                if (index < 0 || index > size) {
+                        throw new IndexOutOfBoundsException("Index: " + index
+                                        + ", Size: " + size);
+                }
+
+                insert(index, toDouble(element), null);
+        }
+
+        public Object remove(int index) {
+                Object old = get(index);
+
+                own();
+                System.arraycopy(data, index + 1, data, index, size - index - 1);
+
+                if (codes != null) {
+                        System.arraycopy(codes, index + 1, codes, index, size - index
+                                        - 1);
+                }
+
+                size--;
+                modCount++;
+                compact();
+
+                return old;
+        }
+
+        public int indexOf(Object o) {
+                if (o instanceof Number) {
+                        double d = toDouble(o);
+
+                        for (int i = 0; i < size; i++) {
+                                if (data[i] == d) {
+                                        return i;
+                                }
+                        }
+                }
+
+                return -1;
+        }
+
+        public int lastIndexOf(Object o) {
+                if (o instanceof Number) {
+                        double d = toDouble(o);
+
+                        for (int i = size - 1; i >= 0; i--) {
+                                if (data[i] == d) {
+                                        return i;
+                                }
+                        }
+                }
+
+                return -1;
+        }
+
+        public void clear() {
+                if (isShared) {
+                        data = new double[data.length];
+                        codes = codes != null ? new int[codes.length] : null;
+                        isShared = false;
+                }
+
+                size = 0;
+                modCount++;
+                compact();
+        }
+
+        /**
+         * Returns a view of a range of this list which keeps the correlations,
+         * see <tt>Range</tt>.
+         */
+        public List subList(int from, int to) {
+                return new Range(from, to);
+        }
+
+        protected void removeRange(int from, int to) {
+                own();
+                System.arraycopy(data, to, data, from, size - to);
+
+                if (codes != null) {
+                        System.arraycopy(codes, to, codes, from, size - to);
+                }
+
+                size -= to - from;
+                modCount++;
+                compact();
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Range Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * A view of a range of a primitive list, as shared by the views of a
+         * data set. Values and correlations are read from the primitive list,
+         * and a copy of the range is a primitive list itself.
+         * <p>
+         * A range may only be read or cleared. Like the ranges of other lists, it
+         * becomes invalid once the list is changed other than through it.
+         */
+        final class Range extends AbstractList implements RandomAccess {
+
+                private final int offset;
+                private int size;
+                private int expectedModCount;
+
+                private Range(int from, int to) {
+                        if (from < 0 || to > DoubleList.this.size || from > to) {
+                                throw new IndexOutOfBoundsException("From: " + from
+                                                + ", To: " + to + ", Size: " + DoubleList.this.size);
+                        }
+
+                        offset = from;
+                        size = to - from;
+                        expectedModCount = DoubleList.this.modCount;
+                }
+
+                double getDouble(int index) {
+                        return data[locate(index)];
+                }
+
+                Object getCorrelation(int index) {
+                        return DoubleList.this.getCorrelation(locate(index));
+                }
+
+                DoubleList copy() {
+                        check();
+
+                        DoubleList list = new DoubleList(Arrays.copyOfRange(data, offset,
+                                        offset + Math.max(size, 1)), size);
+
+                        if (codes != null) {
+                                list.codes = Arrays.copyOfRange(codes, offset, offset
+                                                + list.data.length);
+                                list.column = column;
+                                list.compact();
+                        }
+
+                        return list;
+                }
+
+                public int size() {
+                        check();
+                        return size;
+                }
+
+                public Object get(int index) {
+                        return DoubleList.this.get(locate(index));
+                }
+
+                public List subList(int from, int to) {
+                        check();
+
+                        if (from < 0 || to > size || from > to) {
+                                throw new IndexOutOfBoundsException("From: " + from
+                                                + ", To: " + to + ", Size: " + size);
+                        }
+
+                        return new Range(offset + from, offset + to);
+                }
+
+                protected void removeRange(int from, int to) {
+                        check();
+                        DoubleList.this.removeRange(offset + from, offset + to);
+                        expectedModCount = DoubleList.this.modCount;
+                        size -= to - from;
+                        modCount++;
+                }
+
+                private int locate(int index) {
+                        check();
+
+                        if (index < 0 || index >= size) {
+                                throw new IndexOutOfBoundsException("Index: " + index
+                                                + ", Size: " + size);
+                        }
+
+                        return offset + index;
+                }
+
+                private void check() {
+                        if (DoubleList.this.modCount != expectedModCount) {
+                                throw new ConcurrentModificationException();
+                        }
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Takes our own copy of arrays shared with a copy of this list.
+         */
+        private void own() {
+                if (isShared) {
+                        data = Arrays.copyOf(data, data.length);
+
+                        if (codes != null) {
+                                codes = Arrays.copyOf(codes, codes.length);
+                        }
+
+                        isShared = false;
+                }
+        }
+
+        /**
+         * Takes a compacted correlation column once most of the entries of ours
+         * belong to values no longer in this list, see
+         * <tt>CorrelationColumn.compact()</tt>. Our codes must not be shared.
+         */
+        private void compact() {
+                if (column != null
+                                && column.size() > 2 * size + COMPACT_MINIMUM) {
+                        column = column.compact(codes, size);
+                }
+        }
+
+        private void grow(int minimum) {
+                int capacity = Math.max(data.length + (data.length >> 1), minimum);
+                data = Arrays.copyOf(data, capacity);
+
+                if (codes != null) {
+                        codes = Arrays.copyOf(codes, capacity);
+                }
+        }
+
+        private static double toDouble(Object element) {
+                if (element instanceof Number) {
+                        return ((Number) element).doubleValue();
+                }
+
+                throw new ClassCastException("Not a numerical value: " + element);
+        }
+}
@@ -0,0 +1,515 @@
+/*
+ * GroupBy.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The <code>GroupBy</code> class partitions the values of data sets into
+ * groups by a key extracted from each value and its correlation (such as the
+ * end point a latency was measured on), and aggregates each group as it goes.
+ * <p>
+ * Values are read as primitives, in a single pass, and every group keeps a
+ * running <tt>Summary</tt> (count, sum, minimum, maximum and moments).
+ * Optionally, each group also records its values in a <tt>Histogram</tt>
+ * sketch (see <tt>setHistograms()</tt>), and keeps its values in a primitive
+ * array for exact order statistics (see <tt>setRetained()</tt>), obtained on
+ * demand from <tt>Group.getDataSet()</tt>.
+ * <p>
+ * When an <tt>ExecutorService</tt> is provided, large data sets are split
+ * into partitions aggregated in parallel, whose groups are then merged. The
+ * values of each group keep the order of the data set.
+ * <p>
+ * Correlations can only be read back from primitive-backed data sets, such
+ * as columnar ones (see <tt>DataSet.setColumnar()</tt>); the extractor is
+ * given <tt>null</tt> correlations for other data sets.
+ * <p>
+ * All operations are synchronized on the instance.
+ */
+public class GroupBy {
+
+        /**
+         * Extracts the key of the group a value belongs to.
+         */
+        public interface KeyExtractor {
+                Object getKey(double value, Object correlation);
+        }
+
+        /** Groups the values by their correlation */
+        public static final KeyExtractor CORRELATION = new KeyExtractor() {
+                public Object getKey(double value, Object correlation) {
+                        return correlation;
+                }
+        };
+
+        /** Log4J library */
+        private static final Logger log = Logger.getLogger(GroupBy.class);
+
+        // Fewest values given to each partition aggregated in parallel
+        private static final int PARTITION_MINIMUM = 4096;
+
+        private final KeyExtractor extractor;
+        private final ExecutorService executor;
+
+        private final Map groups = new HashMap(); // group by key
+        private final List order = new ArrayList(); // groups in order of creation
+
+        private long highestTrackableValue = 0; // no histograms
+        private int significantDigits = 0;
+        private boolean isRetained = false;
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Groups
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * The aggregated values of one group.
+         * <p>
+         * All operations are synchronized on the group instance.
+         */
+        public static final class Group {
+
+                private final Object key;
+                private final Summary summary = new Summary();
+                private final Histogram histogram;
+                private final DoubleList values;
+
+                private Group(Object key, Histogram histogram, DoubleList values) {
+                        this.key = key;
+                        this.histogram = histogram;
+                        this.values = values;
+                }
+
+                /**
+                 * Requests the key shared by the values of this group.
+                 *
+                 * @return the key, possibly <tt>null</tt>
+                 */
+                public Object getKey() {
+                        return key;
+                }
+
+                /**
+                 * Counts the values of this group.
+                 *
+                 * @return a count of values
+                 */
+                public long getCount() {
+                        return summary.getCount();
+                }
+
+                /**
+                 * Requests the running summary of the values of this group.
+                 *
+                 * @return a copy of the summary
+                 */
+                public Summary getSummary() {
+                        return summary.getCopy();
+                }
+
+                /**
+                 * Requests the histogram of the values of this group.
+                 *
+                 * @return a copy of the histogram, <tt>null</tt> if histograms
+                 *         were not enabled
+                 */
+                public synchronized Histogram getHistogram() {
+                        return histogram != null ? histogram.getCopy() : null;
+                }
+
+                /**
+                 * Requests the values of this group as a primitive-backed data set,
+                 * in the order they were added, for exact statistics such as the
+                 * median or percentiles.
+                 *
+                 * @return a new data set instance, <tt>null</tt> if the values were
+                 *         not retained
+                 */
+                public synchronized DataSet getDataSet() {
+                        if (values == null) {
+                                return null;
+                        }
+
+                        return values.size() > 0 ? DataSet.wrap(values.copy())
+                                        : new DataSet();
+                }
+
+                private synchronized void add(double value) {
+                        summary.add(value);
+
+                        if (histogram != null) {
+                                histogram.recordValue(value);
+                        }
+
+                        if (values != null) {
+                                values.addDouble(value);
+                        }
+                }
+
+                /**
+                 * Creates an empty group of the same key and configuration, to
+                 * aggregate a partition merged into this group later.
+                 */
+                private Group newPartial() {
+                        return new Group(key, histogram != null ? new Histogram(histogram
+                                        .getHighestTrackableValue(), histogram
+                                        .getSignificantDigits()) : null,
+                                        values != null ? new DoubleList(0) : null);
+                }
+
+                private synchronized void merge(Group group) {
+                        summary.merge(group.summary);
+
+                        if (histogram != null) {
+                                histogram.add(group.histogram);
+                        }
+
+                        if (values != null) {
+                                for (int i = 0; i < group.values.size(); i++) {
+                                        values.addDouble(group.values.getDouble(i));
+                                }
+                        }
+                }
+
+                /**
+                 * Returns a string representation of this group.
+                 *
+                 * @return a string representation of the object.
+                 */
+                public String toString() {
+                        return "Group[key=" + key + ", " + summary + "]";
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Constructors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Constructs an empty aggregation, processing data sets in the calling
+         * thread.
+         *
+         * @param extractor
+         *            of the key of each value, see <tt>CORRELATION</tt>
+         */
+        public GroupBy(KeyExtractor extractor) {
+                this(extractor, null);
+        }
+
+        /**
+         * Constructs an empty aggregation.
+         *
+         * @param extractor
+         *            of the key of each value, see <tt>CORRELATION</tt>
+         * @param executor
+         *            used to aggregate partitions of large data sets in parallel,
+         *            <tt>null</tt> to process them in the calling thread
+         */
+        public GroupBy(KeyExtractor extractor, ExecutorService executor) {
+                if (extractor == null) {
+                        throw new IllegalArgumentException("Extractor is null");
+                }
+
+                this.extractor = extractor;
+                this.executor = executor;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Options
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Makes each group created from now on record its values in a histogram
+         * of the specified configuration, see <tt>Histogram</tt>. Values are
+         * rounded to the nearest integer.
+         *
+         * @param highestTrackableValue
+         *            highest value recorded, <tt>0</tt> to disable histograms
+         * @param significantDigits
+         *            number of significant decimal digits kept
+         */
+        public synchronized void setHistograms(long highestTrackableValue,
+                        int significantDigits) {
+                if (highestTrackableValue > 0) {
+                        // Fail now rather than on the first group
+                        new Histogram(highestTrackableValue, significantDigits);
+                }
+
+                this.highestTrackableValue = Math.max(highestTrackableValue, 0);
+                this.significantDigits = significantDigits;
+        }
+
+        /**
+         * Sets wether each group created from now on keeps its values, which
+         * makes exact order statistics available from
+         * <tt>Group.getDataSet()</tt> at the cost of 8 bytes per value.
+         *
+         * @param retained
+         *            <tt>true</tt> to keep the values, <tt>false</tt> otherwise
+         */
+        public synchronized void setRetained(boolean retained) {
+                isRetained = retained;
+        }
+
+        /**
+         * Requests to know if the groups keep their values.
+         *
+         * @return true if they do, false otherwise
+         */
+        public synchronized boolean isRetained() {
+                return isRetained;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Aggregation
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Aggregates every value of the specified data set into its group.
+         *
+         * @param values
+         *            data set to be aggregated
+         * @throws IllegalArgumentException
+         *             if histograms are enabled and a value is <tt>NaN</tt> or
+         *             out of their range
+         */
+        public void add(DataSet values) {
+                if (values == null) {
+                        return;
+                }
+
+                int partitions = executor != null ? Math.min(Runtime.getRuntime()
+                                .availableProcessors(), values.getCount() / PARTITION_MINIMUM)
+                                : 1;
+
+                if (partitions <= 1) {
+                        synchronized (this) {
+                                synchronized (values) {
+                                        int n = values.prepare();
+
+                                        for (int i = 0; i < n; i++) {
+                                                double x = values.valueAt(i);
+                                                Object key = extractor.getKey(x, values
+                                                                .correlationAt(i));
+                                                group(key, groups, order).add(x);
+                                        }
+                                }
+                        }
+
+                        return;
+                }
+
+                final double data[];
+                final Object correlations[];
+
+                // Partitions are read from a snapshot, without the data set lock
+                synchronized (values) {
+                        int n = values.prepare();
+
+                        data = new double[n];
+                        correlations = new Object[n];
+
+                        for (int i = 0; i < n; i++) {
+                                data[i] = values.valueAt(i);
+                                correlations[i] = values.correlationAt(i);
+                        }
+                }
+
+                synchronized (this) {
+                        log.debug("Aggregating " + data.length + " value(s) in "
+                                        + partitions + " partitions");
+
+                        // Groups created before the options last changed keep their
+                        // configuration, which their partial groups must share
+                        final Map existing = new HashMap(groups);
+                        List futures = new ArrayList(partitions);
+
+                        for (int p = 0; p < partitions; p++) {
+                                final int from = (int) ((long) data.length * p / partitions);
+                                final int to = (int) ((long) data.length * (p + 1) / partitions);
+
+                                futures.add(executor.submit(new Callable() {
+                                        public Object call() {
+                                                List created = new ArrayList();
+                                                aggregate(data, correlations, from, to,
+                                                                existing, new HashMap(), created);
+                                                return created;
+                                        }
+                                }));
+                        }
+
+                        try {
+                                // Merged in partition order, to keep the order of values
+                                for (int p = 0; p < partitions; p++) {
+                                        List created = (List) ((Future) futures.get(p)).get();
+
+                                        for (int i = 0; i < created.size(); i++) {
+                                                Group partial = (Group) created.get(i);
+                                                group(partial.key, groups, order).merge(partial);
+                                        }
+                                }
+                        } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new IllegalStateException(
+                                                "Interrupted while aggregating partitions");
+                        } catch (ExecutionException e) {
+                                Throwable cause = e.getCause();
+
+                                if (cause instanceof RuntimeException) {
+                                        throw (RuntimeException) cause;
+                                }
+
+                                throw new IllegalStateException(String.valueOf(cause));
+                        }
+                }
+        }
+
+        /**
+         * Drops all groups.
+         */
+        public synchronized void clear() {
+                groups.clear();
+                order.clear();
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Accessors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Counts the groups.
+         *
+         * @return a count of groups
+         */
+        public synchronized int getGroupCount() {
+                return order.size();
+        }
+
+        /**
+         * Requests the keys of all groups, in the order the groups were created.
+         *
+         * @return a new array of keys
+         */
+        public synchronized Object[] getKeys() {
+                Object keys[] = new Object[order.size()];
+
+                for (int i = 0; i < keys.length; i++) {
+                        keys[i] = ((Group) order.get(i)).key;
+                }
+
+                return keys;
+        }
+
+        /**
+         * Requests all groups, in the order they were created.
+         *
+         * @return a new array of groups
+         */
+        public synchronized Group[] getGroups() {
+                return (Group[]) order.toArray(new Group[order.size()]);
+        }
+
+        /**
+         * Requests the group of the specified key.
+         *
+         * @param key
+         *            of the group, possibly <tt>null</tt>
+         * @return the group, <tt>null</tt> if no value had this key
+         */
+        public synchronized Group getGroup(Object key) {
+                return (Group) groups.get(key);
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Aggregates a range of values into the specified partial groups, each
+         * configured as the existing group of its key, if any.
+         */
+        private void aggregate(double data[], Object correlations[], int from,
+                        int to, Map existing, Map groups, List order) {
+                for (int i = from; i < to; i++) {
+                        Object key = extractor.getKey(data[i], correlations[i]);
+                        Group group = (Group) groups.get(key);
+
+                        if (group == null) {
+                                Group target = (Group) existing.get(key);
+
+                                group = target != null ? target.newPartial() : newGroup(key);
+                                groups.put(key, group);
+                                order.add(group);
+                        }
+
+                        group.add(data[i]);
+                }
+        }
+
+        /**
+         * Requests the group of the specified key, created if needed.
+         */
+        private Group group(Object key, Map groups, List order) {
+                Group group = (Group) groups.get(key);
+
+                if (group == null) {
+                        group = newGroup(key);
+                        groups.put(key, group);
+                        order.add(group);
+                }
+
+                return group;
+        }
+
+        /**
+         * Creates an empty group of the specified key, configured by the current
+         * options.
+         */
+        private Group newGroup(Object key) {
+                return new Group(key, highestTrackableValue > 0 ? new Histogram(
+                                highestTrackableValue, significantDigits) : null,
+                                isRetained ? new DoubleList(0) : null);
+        }
+
+        /**
+         * Returns a string representation of this aggregation.
+         *
+         * @return a string representation of the object.
+         */
+        public synchronized String toString() {
+                return "GroupBy[groups=" + order.size() + "]";
+        }
+}
@@ -0,0 +1,542 @@
+/*
+ * HeavyHitters.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jeach.stats;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The <code>HeavyHitters</code> class is a bounded-memory sketch which keeps
+ * track of the most frequently occuring values of a stream of samples, using
+ * the <i>Space-Saving</i> algorithm of Metwally, Agrawal and El Abbadi.
+ * <p>
+ * At most <tt>capacity</tt> distinct values are monitored at any time. When a
+ * value which is not monitored is offered and the sketch is full, it replaces
+ * the monitored value with the smallest count and inherits that count as its
+ * maximum over-estimation error.
+ * <p>
+ * For a stream of <tt>N</tt> samples, the following guarantees hold:
+ * <ul>
+ * <li>the estimated frequency of a monitored value is never smaller than its
+ * true frequency and over-estimates it by at most its <tt>error</tt>;</li>
+ * <li>every error is bounded by <tt>N / capacity</tt>;</li>
+ * <li>any value occuring more than <tt>N / capacity</tt> times is monitored.
+ * </li>
+ * </ul>
+ * <p>
+ * Sketches built on different shards of a stream can be combined with
+ * <tt>merge()</tt>, the result offering the same guarantees for the union of
+ * the streams.
+ * <p>
+ * All operations are synchronized on the sketch instance.
+ */
+public class HeavyHitters {
+
+        /** Log4J library */
+        private static final Logger log = Logger.getLogger(HeavyHitters.class);
+
+        /** Largest supported capacity, see <tt>sortByCount()</tt> */
+        public static final int MAX_CAPACITY = 1 << 22;
+
+        private final int capacity;
+
+        // Monitored counters, indexed by slot
+        private final double keys[];
+        private final long counts[];
+        private final long errors[];
+
+        // Min-heap of slots ordered by count, and the heap position of each slot
+        private final int heap[];
+        private final int position[];
+
+        private final DoubleIntMap slots;
+
+        private int size = 0;
+        private long total = 0;
+        private int maxSlot = -1;
+        private boolean isMaxStale = false;
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Constructors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Constructs an empty sketch monitoring at most the specified number of
+         * distinct values.
+         *
+         * @param capacity
+         *            maximum number of monitored values, must be positive
+         */
+        public HeavyHitters(int capacity) {
+                if (capacity <= 0 || capacity > MAX_CAPACITY) {
+                        throw new IllegalArgumentException("Invalid capacity: "
+                                        + capacity);
+                }
+
+                this.capacity = capacity;
+
+                keys = new double[capacity];
+                counts = new long[capacity];
+                errors = new long[capacity];
+                heap = new int[capacity];
+                position = new int[capacity];
+                slots = new DoubleIntMap(capacity);
+        }
+
+        /**
+         * Constructs a sketch having the same capacity and content as the
+         * specified sketch.
+         *
+         * @param sketch
+         *            to be copied
+         */
+        public HeavyHitters(HeavyHitters sketch) {
+                this(sketch.capacity);
+                merge(sketch);
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Update Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Offers one occurence of the specified value to this sketch.
+         *
+         * @param value
+         *            a sample value
+         */
+        public synchronized void offer(double value) {
+                offer(value, 1, 0);
+        }
+
+        /**
+         * Withdraws one occurence of the specified value from this sketch, as
+         * when a sample is removed from a data set.
+         * <p>
+         * Space-Saving is an insert-only algorithm: an occurence of a value that
+         * was evicted from the sketch can not be withdrawn from its counter. In
+         * that case only the stream length is adjusted, and the remaining
+         * estimates stay upper bounds of the true frequencies.
+         *
+         * @param value
+         *            a sample value
+         */
+        public synchronized void withdraw(double value) {
+                int slot = slots.get(value);
+
+                if (total > 0) {
+                        total--;
+                }
+
+                if (slot != DoubleIntMap.MISSING && counts[slot] > 0) {
+                        counts[slot]--;
+
+                        if (errors[slot] > counts[slot]) {
+                                errors[slot] = counts[slot];
+                        }
+
+                        siftUp(position[slot]);
+
+                        if (slot == maxSlot) {
+                                isMaxStale = true;
+                        }
+                }
+        }
+
+        /**
+         * Removes all values from this sketch.
+         */
+        public synchronized void reset() {
+                slots.clear();
+                size = 0;
+                total = 0;
+                maxSlot = -1;
+                isMaxStale = false;
+        }
+
+        /**
+         * Merges the content of the specified sketch into this sketch.
+         * <p>
+         * Counters monitored by both sketches are summed. A counter monitored by
+         * only one of them is increased by the smallest count of the other sketch
+         * (when that sketch is full), since the value may have occured up to that
+         * many times there without being monitored. The largest
+         * <tt>capacity</tt> counters are then retained.
+         * <p>
+         * The error bounds hold whatever the order in which shards are merged.
+         *
+         * @param sketch
+         *            to be merged into this one
+         */
+        public void merge(HeavyHitters sketch) {
+                if (sketch == null || sketch == this) {
+                        return;
+                }
+
+                double otherKeys[];
+                long otherCounts[];
+                long otherErrors[];
+                long otherTotal;
+                long otherMin;
+                int n;
+
+                synchronized (sketch) {
+                        n = sketch.size;
+                        otherKeys = new double[n];
+                        otherCounts = new long[n];
+                        otherErrors = new long[n];
+
+                        for (int i = 0; i < n; i++) {
+                                otherKeys[i] = sketch.keys[i];
+                                otherCounts[i] = sketch.counts[i];
+                                otherErrors[i] = sketch.errors[i];
+                        }
+
+                        otherTotal = sketch.total;
+                        otherMin = sketch.getMinimumCount();
+                }
+
+                synchronized (this) {
+                        long min = getMinimumCount();
+                        int m = size + n;
+                        double k[] = new double[m];
+                        long c[] = new long[m];
+                        long e[] = new long[m];
+                        boolean matched[] = new boolean[n];
+                        DoubleIntMap other = new DoubleIntMap(n);
+
+                        for (int i = 0; i < n; i++) {
+                                other.put(otherKeys[i], i);
+                        }
+
+                        m = 0;
+
+                        for (int i = 0; i < size; i++) {
+                                int j = other.get(keys[i]);
+
+                                k[m] = keys[i];
+
+                                if (j != DoubleIntMap.MISSING) {
+                                        matched[j] = true;
+                                        c[m] = counts[i] + otherCounts[j];
+                                        e[m] = errors[i] + otherErrors[j];
+                                } else {
+                                        c[m] = counts[i] + otherMin;
+                                        e[m] = errors[i] + otherMin;
+                                }
+
+                                m++;
+                        }
+
+                        for (int j = 0; j < n; j++) {
+                                if (!matched[j]) {
+                                        k[m] = otherKeys[j];
+                                        c[m] = otherCounts[j] + min;
+                                        e[m] = otherErrors[j] + min;
+                                        m++;
+                                }
+                        }
+
+                        long newTotal = total + otherTotal;
+
+                        reset();
+
+                        int order[] = sortByCount(c, m);
+
+                        for (int i = 0; i < m && i < capacity; i++) {
+                                int s = order[i];
+                                insert(k[s], c[s], e[s]);
+                        }
+
+                        total = newTotal;
+
+                        log.debug("Merged " + n + " counters, monitoring " + size
+                                        + " values");
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Query Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the maximum number of values monitored by this sketch.
+         *
+         * @return the capacity of this sketch
+         */
+        public int getCapacity() {
+                return capacity;
+        }
+
+        /**
+         * Requests the number of values currently monitored by this sketch.
+         *
+         * @return a count of monitored values
+         */
+        public synchronized int getSize() {
+                return size;
+        }
+
+        /**
+         * Requests the number of samples offered to this sketch (less those that
+         * were withdrawn).
+         *
+         * @return the length of the stream
+         */
+        public synchronized long getTotal() {
+                return total;
+        }
+
+        /**
+         * Requests the estimated frequency of the specified value. Values which
+         * are not monitored have an estimated frequency of zero, but may have
+         * occured up to <tt>getError(value)</tt> times.
+         *
+         * @param value
+         *            a sample value
+         * @return an upper bound of the frequency for monitored values
+         */
+        public synchronized long getFrequency(double value) {
+                int slot = slots.get(value);
+                return slot != DoubleIntMap.MISSING ? counts[slot] : 0;
+        }
+
+        /**
+         * Requests the maximum over-estimation of the frequency of the specified
+         * value. For a value which is not monitored, this is the number of times
+         * it could have occured without being monitored.
+         *
+         * @param value
+         *            a sample value
+         * @return the error bound of the value
+         */
+        public synchronized long getError(double value) {
+                int slot = slots.get(value);
+                return slot != DoubleIntMap.MISSING ? errors[slot]
+                                : getMinimumCount();
+        }
+
+        /**
+         * Requests the number of occurences of the specified value which are
+         * guaranteed to have been seen, that is its estimated frequency less its
+         * error.
+         *
+         * @param value
+         *            a sample value
+         * @return a lower bound of the frequency
+         */
+        public synchronized long getGuaranteedFrequency(double value) {
+                int slot = slots.get(value);
+                return slot != DoubleIntMap.MISSING ? counts[slot] - errors[slot] : 0;
+        }
+
+        /**
+         * Requests the bound on all errors of this sketch, <tt>N / capacity</tt>.
+         *
+         * @return the maximum error of any estimate
+         */
+        public synchronized long getErrorBound() {
+                return total / capacity;
+        }
+
+        /**
+         * Requests the most frequently occuring value.
+         *
+         * @return a value instance, <tt>null</tt> if the sketch is empty
+         */
+        public synchronized Value getMode() {
+                if (isMaxStale) {
+                        maxSlot = -1;
+
+                        for (int i = 0; i < size; i++) {
+                                if (maxSlot < 0 || counts[i] > counts[maxSlot]) {
+                                        maxSlot = i;
+                                }
+                        }
+
+                        isMaxStale = false;
+                }
+
+                return maxSlot >= 0 ? new Value(keys[maxSlot]) : null;
+        }
+
+        /**
+         * Creates a new data set containing the 'Nth' most frequently occuring
+         * values, ordered by decreasing estimated frequency.
+         *
+         * @param Nth
+         *            number of values to be taken
+         * @return a new data set instance, <tt>null</tt> if none
+         */
+        public synchronized DataSet getTop(int Nth) {
+                DataSet ds = null;
+
+                if (Nth > 0 && size > 0) {
+                        int order[] = sortByCount(counts, size);
+
+                        ds = new DataSet();
+
+                        for (int i = 0; i < order.length && i < Nth; i++) {
+                                ds.addValue(keys[order[i]]);
+                        }
+                }
+
+                return ds;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        private void offer(double value, long count, long error) {
+                int slot = slots.get(value);
+
+                total += count;
+
+                if (slot != DoubleIntMap.MISSING) {
+                        counts[slot] += count;
+                        errors[slot] += error;
+                        siftDown(position[slot]);
+                        track(slot);
+                } else if (size < capacity) {
+                        insert(value, count, error);
+                } else {
+                        // Evict the smallest counter, which sits at the heap root
+                        slot = heap[0];
+                        slots.remove(keys[slot]);
+
+                        keys[slot] = value;
+                        errors[slot] = counts[slot] + error;
+                        counts[slot] += count;
+
+                        slots.put(value, slot);
+                        siftDown(0);
+                        track(slot);
+                }
+        }
+
+        private void insert(double value, long count, long error) {
+                int slot = size++;
+
+                keys[slot] = value;
+                counts[slot] = count;
+                errors[slot] = error;
+                heap[slot] = slot;
+                position[slot] = slot;
+
+                slots.put(value, slot);
+                siftUp(slot);
+                track(slot);
+        }
+
+        private void track(int slot) {
+                if (maxSlot < 0 || counts[slot] > counts[maxSlot]) {
+                        maxSlot = slot;
+                }
+        }
+
+        private long getMinimumCount() {
+                return size == capacity ? counts[heap[0]] : 0;
+        }
+
+        private void siftUp(int i) {
+                int slot = heap[i];
+
+                while (i > 0) {
+                        int parent = (i - 1) >>> 1;
+
+                        if (counts[heap[parent]] <= counts[slot]) {
+                                break;
+                        }
+
+                        heap[i] = heap[parent];
+                        position[heap[i]] = i;
+                        i = parent;
+                }
+
+                heap[i] = slot;
+                position[slot] = i;
+        }
+
+        private void siftDown(int i) {
+                int slot = heap[i];
+
+                while (true) {
+                        int child = 2 * i + 1;
+
+                        if (child >= size) {
+                                break;
+                        }
+
+                        if (child + 1 < size
+                                        && counts[heap[child + 1]] < counts[heap[child]]) {
+                                child++;
+                        }
+
+                        if (counts[slot] <= counts[heap[child]]) {
+                                break;
+                        }
+
+                        heap[i] = heap[child];
+                        position[heap[i]] = i;
+                        i = child;
+                }
+
+                heap[i] = slot;
+                position[slot] = i;
+        }
+
+        /**
+         * Orders the first 'n' indexes of the specified counts by decreasing
+         * count.
+         */
+        private static int[] sortByCount(long c[], int n) {
+                long packed[] = new long[n];
+                int order[] = new int[n];
+
+                // Pack (count, index) in one long, n never exceeds 2 * MAX_CAPACITY
+                for (int i = 0; i < n; i++) {
+                        packed[i] = (Math.min(c[i], (1L << 39) - 1) << 24) | i;
+                }
+
+                java.util.Arrays.sort(packed);
+
+                for (int i = 0; i < n; i++) {
+                        order[i] = (int) (packed[n - 1 - i] & ((1 << 24) - 1));
+                }
+
+                return order;
+        }
+
+        /**
+         * Returns a string representation of this sketch.
+         *
+         * @return a string representation of the object.
+         */
+        public synchronized String toString() {
+                return "HeavyHitters[capacity=" + capacity + ", size=" + size
+                                + ", total=" + total + "]";
+        }
+}
@@ -0,0 +1,525 @@
+/*
+ * Histogram.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jeach.stats;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The <code>Histogram</code> class records non-negative integer samples (for
+ * example latencies in microseconds) into logarithmic buckets, each linearly
+ * sub-divided, in the manner of Gil Tene's <i>HdrHistogram</i>.
+ * <p>
+ * The histogram is sized once for a highest trackable value and a number of
+ * significant decimal digits. Recording a value is a constant time array
+ * increment, memory never grows, and every value reported (minimum, maximum,
+ * mean, median, percentiles) is within a relative error of
+ * <tt>10<sup>-digits</sup></tt> of the recorded values.
+ * <p>
+ * For example, with 3 significant digits and a highest trackable value of one
+ * hour in microseconds, the histogram uses about 180KB and reports values
+ * within 0.1%.
+ * <p>
+ * Two histograms with the same configuration can be added together (to
+ * aggregate shards) or subtracted (to obtain the samples recorded between two
+ * snapshots of a cumulative histogram).
+ * <p>
+ * All operations are synchronized on the histogram instance.
+ */
+public class Histogram {
+
+        /** Log4J library */
+        private static final Logger log = Logger.getLogger(Histogram.class);
+
+        private final long highestTrackableValue;
+        private final int significantDigits;
+
+        private final int subBucketHalfCountMagnitude;
+        private final int subBucketHalfCount;
+        private final long subBucketMask;
+        private final int leadingZeroCountBase;
+
+        private final long counts[];
+
+        private long totalCount = 0;
+        private long minValue = Long.MAX_VALUE;
+        private long maxValue = 0;
+        private boolean isRangeStale = false;
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Constructors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Constructs an empty histogram able to record values from <tt>0</tt> to
+         * the specified highest value, with the specified precision.
+         *
+         * @param highestTrackableValue
+         *            largest value which can be recorded, at least 2
+         * @param significantDigits
+         *            number of significant decimal digits, from 0 to 5
+         */
+        public Histogram(long highestTrackableValue, int significantDigits) {
+                if (highestTrackableValue < 2) {
+                        throw new IllegalArgumentException(
+                                        "Highest trackable value must be at least 2: "
+                                                        + highestTrackableValue);
+                }
+
+                if (significantDigits < 0 || significantDigits > 5) {
+                        throw new IllegalArgumentException(
+                                        "Significant digits must be from 0 to 5: "
+                                                        + significantDigits);
+                }
+
+                this.highestTrackableValue = highestTrackableValue;
+                this.significantDigits = significantDigits;
+
+                // Enough linear sub-buckets to resolve one unit in 10^digits
+                long largestSingleUnitResolution = 2 * (long) Math.pow(10,
+                                significantDigits);
+                int subBucketCountMagnitude = (int) Math.ceil(Math
+                                .log(largestSingleUnitResolution)
+                                / Math.log(2));
+
+                subBucketHalfCountMagnitude = Math.max(subBucketCountMagnitude, 1) - 1;
+                subBucketHalfCount = 1 << subBucketHalfCountMagnitude;
+                subBucketMask = (2L * subBucketHalfCount) - 1;
+                leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+
+                counts = new long[(getBucketsNeeded() + 1) * subBucketHalfCount];
+
+                log.debug("Allocated " + counts.length + " buckets for "
+                                + highestTrackableValue + " at " + significantDigits
+                                + " digits");
+        }
+
+        /**
+         * Constructs an empty histogram having the same configuration as the
+         * specified histogram.
+         *
+         * @param histogram
+         *            to take the configuration from
+         */
+        public Histogram(Histogram histogram) {
+                this(histogram.highestTrackableValue, histogram.significantDigits);
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Record Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Records one occurence of the specified value.
+         *
+         * @param value
+         *            to be recorded
+         * @throws IllegalArgumentException
+         *             if the value is negative or above the highest trackable value
+         */
+        public void recordValue(long value) {
+                recordValue(value, 1);
+        }
+
+        /**
+         * Records one occurence of the specified value, rounded to the nearest
+         * integer.
+         *
+         * @param value
+         *            to be recorded
+         * @throws IllegalArgumentException
+         *             if the value is <tt>NaN</tt>, negative or above the highest
+         *             trackable value
+         */
+        public void recordValue(double value) {
+                if (Double.isNaN(value)) {
+                        throw new IllegalArgumentException("Value is NaN");
+                }
+
+                recordValue(Math.round(value), 1);
+        }
+
+        /**
+         * Records the specified number of occurences of the specified value.
+         *
+         * @param value
+         *            to be recorded
+         * @param count
+         *            number of occurences
+         * @throws IllegalArgumentException
+         *             if the value is negative or above the highest trackable value
+         */
+        public synchronized void recordValue(long value, long count) {
+                if (value < 0 || value > highestTrackableValue) {
+                        throw new IllegalArgumentException("Value out of range [0, "
+                                        + highestTrackableValue + "]: " + value);
+                }
+
+                counts[countsIndex(value)] += count;
+                totalCount += count;
+
+                if (value < minValue) {
+                        minValue = value;
+                }
+
+                if (value > maxValue) {
+                        maxValue = value;
+                }
+        }
+
+        /**
+         * Records every value of the specified data set, each rounded to the
+         * nearest integer. <tt>NaN</tt> values are skipped.
+         *
+         * @param values
+         *            data set to be recorded
+         */
+        public void recordValues(DataSet values) {
+                if (values == null) {
+                        return;
+                }
+
+                double data[] = values.getDoubleValues();
+
+                if (data != null) {
+                        for (int i = 0; i < data.length; i++) {
+                                if (!Double.isNaN(data[i])) {
+                                        recordValue(data[i]);
+                                }
+                        }
+                }
+        }
+
+        /**
+         * Adds the counts of the specified histogram to this histogram.
+         *
+         * @param histogram
+         *            having the same configuration as this one
+         */
+        public void add(Histogram histogram) {
+                combine(histogram, 1);
+        }
+
+        /**
+         * Subtracts the counts of the specified histogram from this histogram.
+         * This is typically used to obtain the samples recorded during an
+         * interval, by subtracting an earlier copy of a cumulative histogram.
+         *
+         * @param histogram
+         *            having the same configuration as this one, whose counts do not
+         *            exceed those of this histogram
+         */
+        public void subtract(Histogram histogram) {
+                combine(histogram, -1);
+        }
+
+        /**
+         * Removes all recorded values from this histogram.
+         */
+        public synchronized void reset() {
+                java.util.Arrays.fill(counts, 0);
+                totalCount = 0;
+                minValue = Long.MAX_VALUE;
+                maxValue = 0;
+                isRangeStale = false;
+        }
+
+        /**
+         * Creates a copy of this histogram.
+         *
+         * @return a new histogram instance
+         */
+        public Histogram getCopy() {
+                Histogram h = new Histogram(this);
+                h.add(this);
+                return h;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Statistics Section
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the number of values recorded in this histogram.
+         *
+         * @return a count of values
+         */
+        public synchronized long getCount() {
+                return totalCount;
+        }
+
+        /**
+         * Retrieves the smallest recorded value.
+         *
+         * @return a value instance, <tt>null</tt> if the histogram is empty
+         */
+        public synchronized Value getMinimum() {
+                if (totalCount == 0) {
+                        return null;
+                }
+
+                updateRange();
+
+                return new Value(minValue);
+        }
+
+        /**
+         * Retrieves the largest recorded value.
+         *
+         * @return a value instance, <tt>null</tt> if the histogram is empty
+         */
+        public synchronized Value getMaximum() {
+                if (totalCount == 0) {
+                        return null;
+                }
+
+                updateRange();
+
+                return new Value(maxValue);
+        }
+
+        /**
+         * Calculates the mean of the recorded values, each bucket contributing
+         * its middle value.
+         *
+         * @return a computation of the mean value, <tt>null</tt> if the histogram
+         *         is empty
+         */
+        public synchronized Value getMean() {
+                if (totalCount == 0) {
+                        return null;
+                }
+
+                double sum = 0.0;
+
+                for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] != 0) {
+                                sum += (double) counts[i] * medianEquivalentValue(i);
+                        }
+                }
+
+                return new Value(sum / totalCount);
+        }
+
+        /**
+         * Calculates the median of the recorded values.
+         *
+         * @return a computation of the median value, <tt>null</tt> if the
+         *         histogram is empty
+         */
+        public Value getMedian() {
+                return getPercentile(50.0);
+        }
+
+        /**
+         * Calculates the value below which the specified percentage of the
+         * recorded values fall. The highest value equivalent to the bucket
+         * reaching the percentile is reported.
+         *
+         * @param percentile
+         *            from 0 to 100
+         * @return a value instance, <tt>null</tt> if the histogram is empty
+         */
+        public synchronized Value getPercentile(double percentile) {
+                if (totalCount == 0) {
+                        return null;
+                }
+
+                double p = Math.min(Math.max(percentile, 0.0), 100.0);
+                long target = Math.max((long) Math.ceil(p / 100.0 * totalCount), 1);
+                long cumulative = 0;
+
+                for (int i = 0; i < counts.length; i++) {
+                        cumulative += counts[i];
+
+                        if (cumulative >= target) {
+                                updateRange();
+
+                                long v = Math.min(highestEquivalentValue(i), maxValue);
+                                return new Value(Math.max(v, minValue));
+                        }
+                }
+
+                return getMaximum();
+        }
+
+        /**
+         * Requests the configured number of significant decimal digits.
+         *
+         * @return number of significant digits
+         */
+        public int getSignificantDigits() {
+                return significantDigits;
+        }
+
+        /**
+         * Requests the largest value which can be recorded.
+         *
+         * @return the highest trackable value
+         */
+        public long getHighestTrackableValue() {
+                return highestTrackableValue;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        private int getBucketsNeeded() {
+                long smallestUntrackableValue = 2L * subBucketHalfCount;
+                int bucketsNeeded = 1;
+
+                while (smallestUntrackableValue <= highestTrackableValue) {
+                        if (smallestUntrackableValue > (Long.MAX_VALUE / 2)) {
+                                return bucketsNeeded + 1;
+                        }
+
+                        smallestUntrackableValue <<= 1;
+                        bucketsNeeded++;
+                }
+
+                return bucketsNeeded;
+        }
+
+        private int countsIndex(long value) {
+                int bucketIndex = leadingZeroCountBase
+                                - Long.numberOfLeadingZeros(value | subBucketMask);
+                int subBucketIndex = (int) (value >>> bucketIndex);
+
+                return ((bucketIndex + 1) << subBucketHalfCountMagnitude)
+                                + (subBucketIndex - subBucketHalfCount);
+        }
+
+        private int bucketIndexOf(int index) {
+                return Math.max((index >> subBucketHalfCountMagnitude) - 1, 0);
+        }
+
+        private long lowestEquivalentValue(int index) {
+                int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+                int subBucketIndex = (index & (subBucketHalfCount - 1))
+                                + subBucketHalfCount;
+
+                if (bucketIndex < 0) {
+                        subBucketIndex -= subBucketHalfCount;
+                        bucketIndex = 0;
+                }
+
+                return ((long) subBucketIndex) << bucketIndex;
+        }
+
+        private long highestEquivalentValue(int index) {
+                return lowestEquivalentValue(index) + (1L << bucketIndexOf(index)) - 1;
+        }
+
+        private double medianEquivalentValue(int index) {
+                return lowestEquivalentValue(index)
+                                + ((1L << bucketIndexOf(index)) - 1) / 2.0;
+        }
+
+        /**
+         * Recomputes the minimum and maximum from the buckets after a subtraction,
+         * at which point the exact values are no longer known.
+         */
+        private void updateRange() {
+                if (!isRangeStale) {
+                        return;
+                }
+
+                minValue = Long.MAX_VALUE;
+                maxValue = 0;
+
+                for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] != 0) {
+                                if (minValue == Long.MAX_VALUE) {
+                                        minValue = lowestEquivalentValue(i);
+                                }
+
+                                maxValue = highestEquivalentValue(i);
+                        }
+                }
+
+                isRangeStale = false;
+        }
+
+        private void combine(Histogram histogram, int sign) {
+                if (histogram == null) {
+                        return;
+                }
+
+                if (histogram.significantDigits != significantDigits
+                                || histogram.counts.length != counts.length) {
+                        throw new IllegalArgumentException(
+                                        "Histograms have different configurations");
+                }
+
+                long other[];
+                long otherTotal;
+                long otherMin;
+                long otherMax;
+
+                synchronized (histogram) {
+                        other = histogram.counts.clone();
+                        otherTotal = histogram.totalCount;
+                        histogram.updateRange();
+                        otherMin = histogram.minValue;
+                        otherMax = histogram.maxValue;
+                }
+
+                synchronized (this) {
+                        if (sign < 0) {
+                                for (int i = 0; i < counts.length; i++) {
+                                        if (counts[i] < other[i]) {
+                                                throw new IllegalArgumentException(
+                                                                "Subtraction would produce negative counts");
+                                        }
+                                }
+                        }
+
+                        for (int i = 0; i < counts.length; i++) {
+                                counts[i] += sign * other[i];
+                        }
+
+                        totalCount += sign * otherTotal;
+
+                        if (sign > 0) {
+                                minValue = Math.min(minValue, otherMin);
+                                maxValue = Math.max(maxValue, otherMax);
+                        } else {
+                                isRangeStale = true;
+                        }
+                }
+        }
+
+        /**
+         * Returns a string representation of this histogram.
+         *
+         * @return a string representation of the object.
+         */
+        public synchronized String toString() {
+                return "Histogram[count=" + totalCount + ", digits="
+                                + significantDigits + ", highest=" + highestTrackableValue
+                                + ", buckets=" + counts.length + "]";
+        }
+}
@@ -0,0 +1,86 @@
+/*
+ * Metrics.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+/**
+ * Receives the operations performed by the data sets it is set on (see
+ * <tt>DataSet.setMetrics()</tt>), each with the count of values it involved
+ * and its duration, to be counted and timed. An implementation may forward
+ * them to any metrics library; <tt>MetricsRecorder</tt> keeps them in memory
+ * and exposes them through JMX.
+ * <p>
+ * Operations are named by the constants of this interface. Statistics
+ * computed from other statistics (for example the mean, from the summation)
+ * also report those.
+ * <p>
+ * Implementations must be thread-safe and fast, they are invoked while the
+ * data set is locked.
+ */
+public interface Metrics {
+
+        /** A value added */
+        String INGEST = "ingest";
+
+        /** Values removed, one or many at once */
+        String REMOVE = "remove";
+
+        /** Values added to a sorted data set brought in order */
+        String SORT = "sort";
+
+        /** Sorted values requested and already sorted */
+        String SORTED_HIT = "sorted.hit";
+
+        /** Sorted values requested and sorted again */
+        String SORTED_MISS = "sorted.miss";
+
+        /** A copy of a data set */
+        String COPY = "copy";
+
+        String MEAN = "mean";
+        String SUMMATION = "summation";
+        String MEDIAN = "median";
+        String MINIMUM = "minimum";
+        String MAXIMUM = "maximum";
+        String MODE = "mode";
+        String VARIANCE = "variance";
+        String STANDARD_DEVIATION = "standardDeviation";
+        String SUMMARY = "summary";
+        String HISTOGRAM = "histogram";
+
+        /**
+         * Records an operation.
+         *
+         * @param operation
+         *            name of the operation, one of the constants of this
+         *            interface
+         * @param count
+         *            count of values the operation involved
+         * @param nanos
+         *            duration of the operation, in nanoseconds
+         */
+        void record(String operation, int count, long nanos);
+}
@@ -0,0 +1,351 @@
+/*
+ * MetricsRecorder.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The <code>MetricsRecorder</code> class keeps in memory, per operation, the
+ * count of calls and of values involved, the total duration and a latency
+ * histogram of the operations of the data sets it is set on (see
+ * <tt>Metrics</tt>), and exposes them through JMX once registered.
+ * <p>
+ * The data sets watched by the recorder (see <tt>watch()</tt>) also report
+ * their current count of values and memory estimate. They are only weakly
+ * referenced, a data set no longer used is forgotten.
+ * <p>
+ * For example:
+ * <p>
+ * <tt>MetricsRecorder recorder = new MetricsRecorder();</tt> <br>
+ * <tt>recorder.watch(ds);</tt> <br>
+ * <tt>recorder.register("samples");</tt>
+ * <p>
+ * Recording is lock-free but for the histograms, which are locked for a
+ * single increment.
+ */
+public class MetricsRecorder implements Metrics, MetricsRecorderMBean {
+
+        /** Log4J library */
+        private static final Logger log = Logger.getLogger(MetricsRecorder.class);
+
+        // Latencies up to one hour, within 1%
+        private static final long HIGHEST_LATENCY = 3600L * 1000000000L;
+        private static final int LATENCY_DIGITS = 2;
+
+        private static final String DOMAIN = "com.jeach.stats";
+
+        // Items of a row of getStatistics()
+        private static final String ITEMS[] = { "operation", "calls", "values",
+                        "totalTime", "meanTime", "p50Time", "p99Time", "maxTime" };
+
+        private static final CompositeType ROW_TYPE;
+        private static final TabularType TABLE_TYPE;
+
+        static {
+                try {
+                        ROW_TYPE = new CompositeType("Operation",
+                                        "Statistics of an operation", ITEMS, new String[] {
+                                                        "Name of the operation", "Count of calls",
+                                                        "Count of values involved",
+                                                        "Total duration in nanoseconds",
+                                                        "Mean duration in nanoseconds",
+                                                        "Median duration in nanoseconds",
+                                                        "99th percentile duration in nanoseconds",
+                                                        "Maximum duration in nanoseconds" },
+                                        new OpenType[] { SimpleType.STRING, SimpleType.LONG,
+                                                        SimpleType.LONG, SimpleType.LONG,
+                                                        SimpleType.DOUBLE, SimpleType.DOUBLE,
+                                                        SimpleType.DOUBLE, SimpleType.DOUBLE });
+                        TABLE_TYPE = new TabularType("Operations",
+                                        "Statistics by operation", ROW_TYPE,
+                                        new String[] { "operation" });
+                } catch (OpenDataException e) {
+                        throw new ExceptionInInitializerError(e);
+                }
+        }
+
+        /**
+         * The statistics of one operation.
+         */
+        private static final class Operation {
+                final AtomicLong calls = new AtomicLong();
+                final AtomicLong values = new AtomicLong();
+                final AtomicLong nanos = new AtomicLong();
+                final Histogram latencies = new Histogram(HIGHEST_LATENCY,
+                                LATENCY_DIGITS);
+        }
+
+        private final ConcurrentMap operations = new ConcurrentHashMap();
+        private final List watched = new ArrayList(); // weak data sets
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Recording
+        // ///////////////////////////////////////////////////////////////////////
+
+        public void record(String operation, int count, long nanos) {
+                Operation op = (Operation) operations.get(operation);
+
+                if (op == null) {
+                        Operation created = new Operation();
+
+                        op = (Operation) operations.putIfAbsent(operation, created);
+
+                        if (op == null) {
+                                op = created;
+                        }
+                }
+
+                long time = Math.min(Math.max(nanos, 0L), HIGHEST_LATENCY);
+
+                op.calls.incrementAndGet();
+                op.values.addAndGet(count);
+                op.nanos.addAndGet(time);
+                op.latencies.recordValue(time);
+        }
+
+        /**
+         * Records the operations of the specified data set here, and counts its
+         * values and memory in the totals of this recorder.
+         * 
+         * @param ds
+         *            data set to be watched
+         */
+        public void watch(DataSet ds) {
+                if (ds == null) {
+                        throw new IllegalArgumentException("Data set is null");
+                }
+
+                ds.setMetrics(this);
+
+                synchronized (watched) {
+                        watched.add(new WeakReference(ds));
+                }
+        }
+
+        /**
+         * Registers this recorder with the platform MBean server, under the name
+         * <tt>com.jeach.stats:type=MetricsRecorder,name=</tt><i>name</i>.
+         * 
+         * @param name
+         *            identifying this recorder
+         * @return the name of the MBean
+         * @throws JMException
+         *             if the name is invalid or already registered
+         */
+        public ObjectName register(String name) throws JMException {
+                ObjectName objectName = new ObjectName(DOMAIN
+                                + ":type=MetricsRecorder,name=" + ObjectName.quote(name));
+
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                                objectName);
+
+                log.debug("Registered " + objectName);
+
+                return objectName;
+        }
+
+        /**
+         * Requests the latencies of the specified operation.
+         * 
+         * @param operation
+         *            name of the operation
+         * @return a copy of the histogram of durations in nanoseconds,
+         *         <tt>null</tt> if never recorded
+         */
+        public Histogram getLatencies(String operation) {
+                Operation op = (Operation) operations.get(operation);
+                return op != null ? op.latencies.getCopy() : null;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Management Interface
+        // ///////////////////////////////////////////////////////////////////////
+
+        public TabularData getStatistics() {
+                TabularData table = new TabularDataSupport(TABLE_TYPE);
+                String names[] = getOperations();
+
+                for (int i = 0; i < names.length; i++) {
+                        Operation op = (Operation) operations.get(names[i]);
+
+                        if (op == null) {
+                                continue; // reset meanwhile
+                        }
+
+                        Histogram latencies = op.latencies.getCopy();
+                        long calls = op.calls.get();
+                        long nanos = op.nanos.get();
+
+                        try {
+                                table.put(new CompositeDataSupport(ROW_TYPE, ITEMS,
+                                                new Object[] {
+                                                                names[i],
+                                                                Long.valueOf(calls),
+                                                                Long.valueOf(op.values.get()),
+                                                                Long.valueOf(nanos),
+                                                                Double.valueOf(calls > 0 ? (double) nanos / calls
+                                                                                : Double.NaN),
+                                                                Double.valueOf(doubleValue(latencies
+                                                                                .getPercentile(50))),
+                                                                Double.valueOf(doubleValue(latencies
+                                                                                .getPercentile(99))),
+                                                                Double.valueOf(doubleValue(latencies
+                                                                                .getMaximum())) }));
+                        } catch (OpenDataException e) {
+                                throw new IllegalStateException(String.valueOf(e));
+                        }
+                }
+
+                return table;
+        }
+
+        public String[] getOperations() {
+                String names[] = (String[]) operations.keySet().toArray(new String[0]);
+
+                Arrays.sort(names);
+
+                return names;
+        }
+
+        public long getCalls(String operation) {
+                Operation op = (Operation) operations.get(operation);
+                return op != null ? op.calls.get() : 0L;
+        }
+
+        public long getValues(String operation) {
+                Operation op = (Operation) operations.get(operation);
+                return op != null ? op.values.get() : 0L;
+        }
+
+        public long getTotalTime(String operation) {
+                Operation op = (Operation) operations.get(operation);
+                return op != null ? op.nanos.get() : 0L;
+        }
+
+        public double getMeanTime(String operation) {
+                Operation op = (Operation) operations.get(operation);
+                long calls = op != null ? op.calls.get() : 0L;
+
+                return calls > 0 ? (double) op.nanos.get() / calls : Double.NaN;
+        }
+
+        public double getTimePercentile(String operation, double percentile) {
+                Operation op = (Operation) operations.get(operation);
+                return op != null ? doubleValue(op.latencies.getPercentile(percentile))
+                                : Double.NaN;
+        }
+
+        public int getDataSetCount() {
+                return getWatched().size();
+        }
+
+        public long getValueCount() {
+                List list = getWatched();
+                long count = 0;
+
+                for (int i = 0; i < list.size(); i++) {
+                        count += ((DataSet) list.get(i)).getCount();
+                }
+
+                return count;
+        }
+
+        public long getMemoryEstimate() {
+                List list = getWatched();
+                long bytes = 0;
+
+                for (int i = 0; i < list.size(); i++) {
+                        bytes += ((DataSet) list.get(i)).getMemoryEstimate();
+                }
+
+                return bytes;
+        }
+
+        public void reset() {
+                operations.clear();
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the numerical value of the specified duration, <tt>NaN</tt>
+         * if none.
+         */
+        private static double doubleValue(Value v) {
+                return v != null ? v.doubleValue() : Double.NaN;
+        }
+
+        /**
+         * Requests the data sets watched which are still in use, forgetting the
+         * others. The data sets are read outside of our lock.
+         */
+        private List getWatched() {
+                List list = new ArrayList();
+
+                synchronized (watched) {
+                        for (Iterator it = watched.iterator(); it.hasNext();) {
+                                Object ds = ((WeakReference) it.next()).get();
+
+                                if (ds != null) {
+                                        list.add(ds);
+                                } else {
+                                        it.remove();
+                                }
+                        }
+                }
+
+                return list;
+        }
+
+        public String toString() {
+                return "MetricsRecorder[operations=" + operations.size()
+                                + ", dataSets=" + getDataSetCount() + "]";
+        }
+}
@@ -0,0 +1,136 @@
+/*
+ * MetricsRecorderMBean.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+import javax.management.openmbean.TabularData;
+
+/**
+ * The management interface of <tt>MetricsRecorder</tt>, as exposed through
+ * JMX. Durations are in nanoseconds.
+ * <p>
+ * The statistics of all operations are read as a single attribute (see
+ * <tt>getStatistics()</tt>), which monitoring tools can collect; the methods
+ * taking an operation name are exposed as JMX operations.
+ */
+public interface MetricsRecorderMBean {
+
+        /**
+         * Requests the statistics of every operation recorded so far, one row
+         * per operation indexed by its name, with the items <tt>operation</tt>,
+         * <tt>calls</tt>, <tt>values</tt>, <tt>totalTime</tt>,
+         * <tt>meanTime</tt>, <tt>p50Time</tt>, <tt>p99Time</tt> and
+         * <tt>maxTime</tt>.
+         *
+         * @return a table of statistics
+         */
+        TabularData getStatistics();
+
+        /**
+         * Requests the names of the operations recorded so far, in alphabetical
+         * order.
+         *
+         * @return an array of operation names
+         */
+        String[] getOperations();
+
+        /**
+         * Requests the number of times the specified operation was recorded.
+         *
+         * @param operation
+         *            name of the operation
+         * @return a count of calls
+         */
+        long getCalls(String operation);
+
+        /**
+         * Requests the total count of values involved in the specified
+         * operation.
+         *
+         * @param operation
+         *            name of the operation
+         * @return a count of values
+         */
+        long getValues(String operation);
+
+        /**
+         * Requests the total duration of the specified operation.
+         *
+         * @param operation
+         *            name of the operation
+         * @return a duration in nanoseconds
+         */
+        long getTotalTime(String operation);
+
+        /**
+         * Requests the mean duration of the specified operation.
+         *
+         * @param operation
+         *            name of the operation
+         * @return a duration in nanoseconds, <tt>NaN</tt> if never recorded
+         */
+        double getMeanTime(String operation);
+
+        /**
+         * Requests the duration below which the specified percentage of the
+         * calls of the specified operation completed.
+         *
+         * @param operation
+         *            name of the operation
+         * @param percentile
+         *            from 0 to 100
+         * @return a duration in nanoseconds, <tt>NaN</tt> if never recorded
+         */
+        double getTimePercentile(String operation, double percentile);
+
+        /**
+         * Requests the number of data sets watched, see
+         * <tt>MetricsRecorder.watch()</tt>.
+         *
+         * @return a count of data sets
+         */
+        int getDataSetCount();
+
+        /**
+         * Requests the current total count of values of the data sets watched.
+         *
+         * @return a count of values
+         */
+        long getValueCount();
+
+        /**
+         * Requests the current total memory estimate of the data sets watched,
+         * see <tt>DataSet.getMemoryEstimate()</tt>.
+         *
+         * @return an estimate in bytes
+         */
+        long getMemoryEstimate();
+
+        /**
+         * Forgets all the operations recorded so far.
+         */
+        void reset();
+}
@@ -0,0 +1,348 @@
+/*
+ * RankTree.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+import java.util.Arrays;
+
+/**
+ * An order-statistic tree over sample values, answering how many values are
+ * below a given value (rank) and which value has a given rank (select) in
+ * <tt>O(log n)</tt> expected time, while values are added and removed.
+ * <p>
+ * The tree is a treap holding each distinct value once, along with the number
+ * of times it occurs and the total count of its subtree. Nodes are stored in
+ * parallel primitive arrays, node 0 standing for the empty subtree, and the
+ * nodes of removed values are reused.
+ * <p>
+ * Values follow the numerical equality used throughout <tt>DataSet</tt>:
+ * <tt>-0.0</tt> and <tt>0.0</tt> are the same value. Not-a-number values are
+ * ranked above all others.
+ * <p>
+ * This class is not synchronized, the owning instance is expected to guard
+ * it.
+ */
+final class RankTree {
+
+        private static final int MIN_CAPACITY = 16;
+
+        private double keys[];
+        private int counts[]; // occurrences of the value of each node
+        private int sizes[]; // occurrences of all values of each subtree
+        private int left[];
+        private int right[];
+        private int priorities[];
+
+        private int root = 0;
+        private int nodes = 0; // highest node in use
+        private int free = 0; // first reusable node, chained through left[]
+        private int seed = 0x2545f491;
+        private boolean found;
+
+        /**
+         * Constructs an empty tree sized for the specified number of distinct
+         * values.
+         *
+         * @param expected
+         *            number of distinct values expected to be stored
+         */
+        RankTree(int expected) {
+                int capacity = Math.max(expected + 1, MIN_CAPACITY);
+
+                keys = new double[capacity];
+                counts = new int[capacity];
+                sizes = new int[capacity];
+                left = new int[capacity];
+                right = new int[capacity];
+                priorities = new int[capacity];
+        }
+
+        /**
+         * Requests the number of values contained in this tree, counting each
+         * occurrence.
+         *
+         * @return a count of values
+         */
+        int size() {
+                return sizes[root];
+        }
+
+        /**
+         * Adds one occurrence of the specified value.
+         *
+         * @param value
+         *            to be added
+         */
+        void add(double value) {
+                root = insert(root, canonical(value));
+        }
+
+        /**
+         * Removes one occurrence of the specified value, if present.
+         *
+         * @param value
+         *            to be removed
+         * @return <tt>true</tt> if the value was found
+         */
+        boolean remove(double value) {
+                found = false;
+                root = delete(root, canonical(value));
+                return found;
+        }
+
+        /**
+         * Removes all values.
+         */
+        void clear() {
+                root = 0;
+                nodes = 0;
+                free = 0;
+        }
+
+        /**
+         * Counts the values smaller than (or equal to if inclusive) the
+         * specified value.
+         *
+         * @param value
+         *            upper bound
+         * @param inclusive
+         *            <tt>true</tt> to count the values equal to the bound
+         * @return a count of values
+         */
+        int countBelow(double value, boolean inclusive) {
+                double x = canonical(value);
+                int count = 0;
+                int t = root;
+
+                while (t != 0) {
+                        int c = Double.compare(x, keys[t]);
+
+                        if (c < 0) {
+                                t = left[t];
+                        } else if (c > 0) {
+                                count += sizes[left[t]] + counts[t];
+                                t = right[t];
+                        } else {
+                                count += sizes[left[t]] + (inclusive ? counts[t] : 0);
+                                break;
+                        }
+                }
+
+                return count;
+        }
+
+        /**
+         * Requests the value of the specified rank: the smallest value for a rank
+         * of zero, the largest for a rank of <tt>size() - 1</tt>.
+         *
+         * @param rank
+         *            of the value
+         * @return the value of this rank
+         */
+        double select(int rank) {
+                if (rank < 0 || rank >= size()) {
+                        throw new IndexOutOfBoundsException("Rank: " + rank
+                                        + ", Size: " + size());
+                }
+
+                int t = root;
+
+                while (true) {
+                        int before = sizes[left[t]];
+
+                        if (rank < before) {
+                                t = left[t];
+                        } else if (rank < before + counts[t]) {
+                                return keys[t];
+                        } else {
+                                rank -= before + counts[t];
+                                t = right[t];
+                        }
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        private static double canonical(double value) {
+                return value == 0.0 ? 0.0 : value;
+        }
+
+        private int insert(int t, double x) {
+                if (t == 0) {
+                        return allocate(x);
+                }
+
+                int c = Double.compare(x, keys[t]);
+
+                if (c == 0) {
+                        counts[t]++;
+                } else if (c < 0) {
+                        // Assigned apart, the arrays may grow during the insertion
+                        int l = insert(left[t], x);
+                        left[t] = l;
+
+                        if (priorities[left[t]] > priorities[t]) {
+                                t = rotateRight(t);
+                        }
+                } else {
+                        int r = insert(right[t], x);
+                        right[t] = r;
+
+                        if (priorities[right[t]] > priorities[t]) {
+                                t = rotateLeft(t);
+                        }
+                }
+
+                update(t);
+
+                return t;
+        }
+
+        private int delete(int t, double x) {
+                if (t == 0) {
+                        return 0;
+                }
+
+                int c = Double.compare(x, keys[t]);
+
+                if (c < 0) {
+                        left[t] = delete(left[t], x);
+                } else if (c > 0) {
+                        right[t] = delete(right[t], x);
+                } else {
+                        found = true;
+
+                        if (counts[t] > 1) {
+                                counts[t]--;
+                        } else {
+                                return unlink(t);
+                        }
+                }
+
+                update(t);
+
+                return t;
+        }
+
+        /**
+         * Removes the specified node from its subtree by rotating it down to a
+         * leaf, and returns the new root of the subtree.
+         */
+        private int unlink(int t) {
+                int r;
+
+                if (left[t] == 0) {
+                        r = right[t];
+                        release(t);
+                } else if (right[t] == 0) {
+                        r = left[t];
+                        release(t);
+                } else if (priorities[left[t]] > priorities[right[t]]) {
+                        r = rotateRight(t);
+                        right[r] = unlink(t);
+                        update(r);
+                } else {
+                        r = rotateLeft(t);
+                        left[r] = unlink(t);
+                        update(r);
+                }
+
+                return r;
+        }
+
+        private int rotateRight(int t) {
+                int l = left[t];
+
+                left[t] = right[l];
+                right[l] = t;
+                update(t);
+                update(l);
+
+                return l;
+        }
+
+        private int rotateLeft(int t) {
+                int r = right[t];
+
+                right[t] = left[r];
+                left[r] = t;
+                update(t);
+                update(r);
+
+                return r;
+        }
+
+        private void update(int t) {
+                sizes[t] = sizes[left[t]] + counts[t] + sizes[right[t]];
+        }
+
+        private int allocate(double x) {
+                int t;
+
+                if (free != 0) {
+                        t = free;
+                        free = left[t];
+                } else {
+                        if (nodes + 1 == keys.length) {
+                                grow();
+                        }
+
+                        t = ++nodes;
+                }
+
+                // Xorshift priorities keep the tree balanced in expectation
+                seed ^= seed << 13;
+                seed ^= seed >>> 17;
+                seed ^= seed << 5;
+
+                keys[t] = x;
+                counts[t] = 1;
+                sizes[t] = 1;
+                left[t] = 0;
+                right[t] = 0;
+                priorities[t] = seed;
+
+                return t;
+        }
+
+        private void release(int t) {
+                left[t] = free;
+                free = t;
+        }
+
+        private void grow() {
+                int capacity = keys.length << 1;
+
+                keys = Arrays.copyOf(keys, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                priorities = Arrays.copyOf(priorities, capacity);
+        }
+}
@@ -0,0 +1,398 @@
+/*
+ * Reservoir.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jeach.stats;
+
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The <code>Reservoir</code> class keeps a fixed-size random sample of an
+ * unbounded stream of values. Only the sample is held in memory, so a stream
+ * of any length can be sampled with a few megabytes.
+ * <p>
+ * Two sampling schemes are supported:
+ * <ul>
+ * <li><b>uniform</b> - every value offered so far has the same probability of
+ * being in the sample. This uses Li's <i>Algorithm L</i>, which computes how
+ * many values to skip before the next replacement, so most offers are a
+ * single counter comparison.</li>
+ * <li><b>time-decayed</b> - the probability of a value being in the sample
+ * decays exponentially with its age, favouring recent values. This uses
+ * weighted sampling (Efraimidis and Spirakis) with forward-decay weights
+ * <tt>exp(decay * time)</tt>, computed in log space so that weights never
+ * overflow as time grows.</li>
+ * </ul>
+ * <p>
+ * Statistics are computed on the sample by requesting it as a data set with
+ * <tt>getDataSet()</tt>.
+ * <p>
+ * All operations are synchronized on the reservoir instance.
+ */
+public class Reservoir {
+
+        /** Log4J library */
+        private static final Logger log = Logger.getLogger(Reservoir.class);
+
+        private final int capacity;
+        private final double decay;
+        private final boolean isDecayed;
+        private final Random random;
+
+        private final Value sample[];
+        private int size = 0;
+        private long seen = 0;
+
+        // Algorithm L state
+        private double w = 0.0;
+        private long next = 0;
+
+        // Time-decayed state, a max-heap of slots ordered by priority
+        private double priorities[] = null;
+        private int heap[] = null;
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Constructors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Constructs a uniform reservoir holding at most the specified number of
+         * values.
+         *
+         * @param capacity
+         *            size of the sample, must be positive
+         */
+        public Reservoir(int capacity) {
+                this(capacity, new Random());
+        }
+
+        /**
+         * Constructs a uniform reservoir holding at most the specified number of
+         * values, and drawing its random numbers from the specified generator
+         * (for reproducible samples).
+         *
+         * @param capacity
+         *            size of the sample, must be positive
+         * @param random
+         *            source of random numbers
+         */
+        public Reservoir(int capacity, Random random) {
+                this(capacity, 0.0, false, random);
+        }
+
+        /**
+         * Constructs a time-decayed reservoir holding at most the specified number
+         * of values. A value offered at time <tt>t</tt> has a weight of
+         * <tt>exp(decay * t)</tt>, in other words the weight of a value is
+         * halved every <tt>ln(2) / decay</tt> units of time.
+         *
+         * @param capacity
+         *            size of the sample, must be positive
+         * @param decay
+         *            rate of decay per unit of time, must be positive
+         * @param random
+         *            source of random numbers
+         */
+        public Reservoir(int capacity, double decay, Random random) {
+                this(capacity, decay, true, random);
+        }
+
+        private Reservoir(int capacity, double decay, boolean isDecayed,
+                        Random random) {
+                if (capacity <= 0) {
+                        throw new IllegalArgumentException("Invalid capacity: "
+                                        + capacity);
+                }
+
+                if (isDecayed && !(decay > 0.0)) {
+                        throw new IllegalArgumentException("Invalid decay: " + decay);
+                }
+
+                this.capacity = capacity;
+                this.decay = decay;
+                this.isDecayed = isDecayed;
+                this.random = random != null ? random : new Random();
+
+                sample = new Value[capacity];
+
+                if (isDecayed) {
+                        priorities = new double[capacity];
+                        heap = new int[capacity];
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Update Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Offers the specified value to this reservoir.
+         *
+         * @param value
+         *            a sample value
+         */
+        public void offer(double value) {
+                offer(new Value(value));
+        }
+
+        /**
+         * Offers the specified <code>Number</code> to this reservoir. Like with
+         * <tt>DataSet.addValue(Number)</tt>, the number is kept as a correlation
+         * of the sampled value.
+         *
+         * @param value
+         *            a sample value
+         */
+        public void offer(Number value) {
+                if (value != null) {
+                        Value v = new Value(value);
+                        v.addCorrelation(value);
+                        offer(v);
+                }
+        }
+
+        /**
+         * Offers the specified value to this reservoir. For a time-decayed
+         * reservoir, the current time in milliseconds is used as time stamp.
+         *
+         * @param value
+         *            a sample value
+         */
+        public synchronized void offer(Value value) {
+                if (isDecayed) {
+                        offer(value, System.currentTimeMillis());
+                        return;
+                }
+
+                if (value == null) {
+                        return;
+                }
+
+                seen++;
+
+                if (size < capacity) {
+                        sample[size++] = value;
+
+                        if (size == capacity) {
+                                w = Math.exp(Math.log(nextOpen()) / capacity);
+                                skip();
+                        }
+                } else if (seen == next) {
+                        sample[random.nextInt(capacity)] = value;
+
+                        w *= Math.exp(Math.log(nextOpen()) / capacity);
+                        skip();
+                }
+        }
+
+        /**
+         * Offers the specified value to this reservoir, stamped with the specified
+         * time. For a uniform reservoir the time is ignored.
+         *
+         * @param value
+         *            a sample value
+         * @param time
+         *            time stamp of the value, in the unit of the decay rate
+         */
+        public synchronized void offer(Value value, double time) {
+                if (!isDecayed) {
+                        offer(value);
+                        return;
+                }
+
+                if (value == null) {
+                        return;
+                }
+
+                seen++;
+
+                // Keep the values with the smallest ln(-ln(u) / weight)
+                double p = Math.log(-Math.log(nextOpen())) - decay * time;
+
+                if (size < capacity) {
+                        sample[size] = value;
+                        priorities[size] = p;
+                        heap[size] = size;
+                        siftUp(size++);
+                } else if (p < priorities[heap[0]]) {
+                        int slot = heap[0];
+
+                        sample[slot] = value;
+                        priorities[slot] = p;
+                        siftDown(0);
+                }
+        }
+
+        /**
+         * Removes all values from this reservoir.
+         */
+        public synchronized void reset() {
+                for (int i = 0; i < size; i++) {
+                        sample[i] = null;
+                }
+
+                size = 0;
+                seen = 0;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Query Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the maximum number of values held by this reservoir.
+         *
+         * @return the capacity of this reservoir
+         */
+        public int getCapacity() {
+                return capacity;
+        }
+
+        /**
+         * Requests if this reservoir favours recent values.
+         *
+         * @return <tt>true</tt> if time-decayed, <tt>false</tt> if uniform
+         */
+        public boolean isDecayed() {
+                return isDecayed;
+        }
+
+        /**
+         * Requests the number of values currently held by this reservoir.
+         *
+         * @return a count of values
+         */
+        public synchronized int getCount() {
+                return size;
+        }
+
+        /**
+         * Requests the number of values offered to this reservoir.
+         *
+         * @return length of the stream
+         */
+        public synchronized long getSeen() {
+                return seen;
+        }
+
+        /**
+         * Creates a new data set containing the values currently held by this
+         * reservoir. The <tt>Value</tt> instances are referenced rather than
+         * duplicated, and the data set is not affected by later offers.
+         *
+         * @return a new data set instance
+         */
+        public synchronized DataSet getDataSet() {
+                DataSet ds = new DataSet();
+
+                for (int i = 0; i < size; i++) {
+                        ds.addValue(sample[i]);
+                }
+
+                log.debug("Sample of " + size + " out of " + seen + " values");
+
+                return ds;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Draws a uniform random number in the open interval (0, 1).
+         */
+        private double nextOpen() {
+                double u;
+
+                do {
+                        u = random.nextDouble();
+                } while (u == 0.0);
+
+                return u;
+        }
+
+        /**
+         * Computes the position of the next value to be sampled.
+         */
+        private void skip() {
+                next = seen + (long) Math.floor(Math.log(nextOpen()) / Math.log(1 - w))
+                                + 1;
+        }
+
+        private void siftUp(int i) {
+                int slot = heap[i];
+
+                while (i > 0) {
+                        int parent = (i - 1) >>> 1;
+
+                        if (priorities[heap[parent]] >= priorities[slot]) {
+                                break;
+                        }
+
+                        heap[i] = heap[parent];
+                        i = parent;
+                }
+
+                heap[i] = slot;
+        }
+
+        private void siftDown(int i) {
+                int slot = heap[i];
+
+                while (true) {
+                        int child = 2 * i + 1;
+
+                        if (child >= size) {
+                                break;
+                        }
+
+                        if (child + 1 < size
+                                        && priorities[heap[child + 1]] > priorities[heap[child]]) {
+                                child++;
+                        }
+
+                        if (priorities[slot] >= priorities[heap[child]]) {
+                                break;
+                        }
+
+                        heap[i] = heap[child];
+                        i = child;
+                }
+
+                heap[i] = slot;
+        }
+
+        /**
+         * Returns a string representation of this reservoir.
+         *
+         * @return a string representation of the object.
+         */
+        public synchronized String toString() {
+                return "Reservoir[capacity=" + capacity + ", count=" + size
+                                + ", seen=" + seen + (isDecayed ? ", decay=" + decay : "")
+                                + "]";
+        }
+}
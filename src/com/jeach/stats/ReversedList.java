@@ -0,0 +1,137 @@
+/*
+ * ReversedList.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list presenting the elements of another random-access list in reverse
+ * order, without copying them. Changes made through this list are applied to
+ * the underlying list, at the mirrored positions.
+ * <p>
+ * Used by sorted data sets to switch between ascending and descending order
+ * in constant time, see <tt>DataSet.setReversed()</tt>.
+ * <p>
+ * This class is not synchronized, the owning data set is expected to guard
+ * it.
+ */
+final class ReversedList extends AbstractList implements RandomAccess {
+
+        private final List list;
+
+        /**
+         * Constructs a reversed view of the specified list.
+         *
+         * @param list
+         *            random-access list to be read backward
+         */
+        ReversedList(List list) {
+                this.list = list;
+        }
+
+        /**
+         * Requests the list read backward by this list.
+         *
+         * @return the underlying list
+         */
+        List getList() {
+                return list;
+        }
+
+        /**
+         * Converts an index of this list into an index of the underlying list.
+         *
+         * @param index
+         *            position within this list
+         * @return position within the underlying list
+         */
+        int mirror(int index) {
+                return list.size() - 1 - index;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // List Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        public int size() {
+                return list.size();
+        }
+
+        public Object get(int index) {
+                checkIndex(index, size() - 1);
+                return list.get(mirror(index));
+        }
+
+        public Object set(int index, Object element) {
+                checkIndex(index, size() - 1);
+                return list.set(mirror(index), element);
+        }
+
+        public void add(int index, Object element) {
+                checkIndex(index, size());
+                list.add(list.size() - index, element);
+                modCount++;
+        }
+
+        public Object remove(int index) {
+                checkIndex(index, size() - 1);
+                modCount++;
+                return list.remove(mirror(index));
+        }
+
+        public void clear() {
+                list.clear();
+                modCount++;
+        }
+
+        /**
+         * Returns the reversed view of the mirrored range of the underlying
+         * list, so that a range of a reversed primitive list is still read
+         * through the primitive list.
+         */
+        public List subList(int from, int to) {
+                if (from < 0 || to > size() || from > to) {
+                        throw new IndexOutOfBoundsException("From: " + from + ", To: "
+                                        + to + ", Size: " + size());
+                }
+
+                return new ReversedList(list.subList(size() - to, size() - from));
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        private void checkIndex(int index, int last) {
+                if (index < 0 || index > last) {
+                        throw new IndexOutOfBoundsException("Index: " + index
+                                        + ", Size: " + size());
+                }
+        }
+}
@@ -0,0 +1,836 @@
+/*
+ * ShardedDataSet.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jeach.stats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The <code>ShardedDataSet</code> class spreads its values over several
+ * internal <tt>DataSet</tt> partitions (shards), each with its own lock and
+ * storage, so that many threads can add values and compute statistics at the
+ * same time.
+ * <p>
+ * Values are assigned to shards either in round-robin order, which keeps the
+ * shards balanced, or by hashing their numerical value, which keeps equal
+ * values in the same shard.
+ * <p>
+ * Count, sum, mean, variance, standard deviation, minimum, maximum and range
+ * are computed per shard with <tt>DataSet.getSummary()</tt> and the summaries
+ * are merged. Frequencies and ranks are counted per shard and added up, and
+ * the largest and smallest values are selected per shard and merged. Median,
+ * modes and values by rank sort each shard and combine them with a k-way
+ * merge. When an <tt>ExecutorService</tt> is provided, the per-shard
+ * work runs in parallel on it; otherwise it runs in the calling thread.
+ * <p>
+ * Statistics are computed shard by shard without a global lock, so values
+ * added concurrently with a computation may or may not be included in it.
+ */
+public class ShardedDataSet {
+
+        /** Log4J library */
+        private static final Logger log = Logger.getLogger(ShardedDataSet.class);
+
+        /** Values are assigned to shards in turn */
+        public static final int PARTITION_ROUND_ROBIN = 0;
+
+        /** Values are assigned to shards by hashing their numerical value */
+        public static final int PARTITION_BY_VALUE = 1;
+
+        private final DataSet shards[];
+        private final int partitioning;
+        private final ExecutorService executor;
+        private final AtomicInteger next = new AtomicInteger();
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Constructors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Constructs a round-robin sharded data set with one shard per available
+         * processor, computing statistics in the calling thread.
+         */
+        public ShardedDataSet() {
+                this(Runtime.getRuntime().availableProcessors(),
+                                PARTITION_ROUND_ROBIN, null);
+        }
+
+        /**
+         * Constructs a sharded data set.
+         *
+         * @param count
+         *            number of shards, must be positive
+         * @param partitioning
+         *            one of <tt>PARTITION_ROUND_ROBIN</tt> or
+         *            <tt>PARTITION_BY_VALUE</tt>
+         * @param executor
+         *            used to process the shards in parallel, <tt>null</tt> to
+         *            process them in the calling thread
+         */
+        public ShardedDataSet(int count, int partitioning, ExecutorService executor) {
+                if (count <= 0) {
+                        throw new IllegalArgumentException("Invalid shard count: "
+                                        + count);
+                }
+
+                if (partitioning != PARTITION_ROUND_ROBIN
+                                && partitioning != PARTITION_BY_VALUE) {
+                        throw new IllegalArgumentException("Invalid partitioning: "
+                                        + partitioning);
+                }
+
+                this.partitioning = partitioning;
+                this.executor = executor;
+
+                shards = new DataSet[count];
+
+                for (int i = 0; i < count; i++) {
+                        shards[i] = new DataSet();
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Add/Remove Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Adds a new variable to this data set.
+         *
+         * @param value
+         *            is a new variable to add to the set.
+         */
+        public void addValue(double value) {
+                shardFor(value).addValue(value);
+        }
+
+        /**
+         * Add a new <code>Number</code> to this data set.
+         *
+         * @param value
+         *            is a new variable to add to the set.
+         */
+        public void addValue(Number value) {
+                if (value != null) {
+                        shardFor(value.doubleValue()).addValue(value);
+                }
+        }
+
+        /**
+         * Adds the specified value to this data set.
+         *
+         * @param value
+         *            is a new value to add to the set.
+         */
+        public void addValue(Value value) {
+                if (value != null) {
+                        shardFor(value.doubleValue()).addValue(value);
+                }
+        }
+
+        /**
+         * Adds an array of new variables to this data set.
+         *
+         * @param values
+         *            is an array of new variables.
+         */
+        public void addValues(double values[]) {
+                if (values != null) {
+                        for (int i = 0; i < values.length; i++) {
+                                addValue(values[i]);
+                        }
+                }
+        }
+
+        /**
+         * Removes all values contained within this data set.
+         *
+         * @return a count of values which were removed
+         */
+        public int empty() {
+                int count = 0;
+
+                for (int i = 0; i < shards.length; i++) {
+                        count += shards[i].empty();
+                }
+
+                return count;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Public Accessors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the number of shards.
+         *
+         * @return a count of shards
+         */
+        public int getShardCount() {
+                return shards.length;
+        }
+
+        /**
+         * Requests the shard at the specified index. The shard may be queried or
+         * modified directly.
+         *
+         * @param index
+         *            of the shard
+         * @return a data set instance
+         */
+        public DataSet getShard(int index) {
+                return shards[index];
+        }
+
+        /**
+         * Counts all of the values contained in this data set.
+         *
+         * @return a count of values
+         */
+        public int getCount() {
+                int count = 0;
+
+                for (int i = 0; i < shards.length; i++) {
+                        count += shards[i].getCount();
+                }
+
+                return count;
+        }
+
+        /**
+         * Tests if this data set contains any values.
+         *
+         * @return <code>true</code> if no values are contained in this data set
+         */
+        public boolean isEmpty() {
+                for (int i = 0; i < shards.length; i++) {
+                        if (!shards[i].isEmpty()) {
+                                return false;
+                        }
+                }
+
+                return true;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Statistics Section
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Computes the summary of all shards, merged.
+         *
+         * @return a new summary instance
+         */
+        public Summary getSummary() {
+                Object results[] = forEachShard(new ShardTask() {
+                        Object run(DataSet shard) {
+                                return shard.getSummary();
+                        }
+                });
+
+                Summary s = new Summary();
+
+                for (int i = 0; i < results.length; i++) {
+                        s.merge((Summary) results[i]);
+                }
+
+                return s;
+        }
+
+        /**
+         * Sums all the values within this data set.
+         *
+         * @return a value object, <tt>null</tt> if empty
+         */
+        public Value getSummation() {
+                return getSummary().getSummation();
+        }
+
+        /**
+         * Calculates the average (arithmetic mean) of this data set.
+         *
+         * @return a computation of the mean value, <tt>null</tt> if empty
+         */
+        public Value getMean() {
+                return getSummary().getMean();
+        }
+
+        /**
+         * Calculates the variance of this data set, like
+         * <tt>DataSet.getVariance()</tt>.
+         *
+         * @return a computation of the variance, <tt>null</tt> if empty
+         */
+        public Value getVariance() {
+                return getSummary().getVariance();
+        }
+
+        /**
+         * Calculates the standard deviation of this data set, like
+         * <tt>DataSet.getStandardDeviation()</tt>.
+         *
+         * @return the standard deviation, <tt>null</tt> if less than two values
+         */
+        public Value getStandardDeviation() {
+                return getSummary().getStandardDeviation();
+        }
+
+        /**
+         * Retrieves the smallest value in this data set.
+         *
+         * @return a value instance, <tt>null</tt> if empty
+         */
+        public Value getMinimum() {
+                return getSummary().getMinimum();
+        }
+
+        /**
+         * Retrieves the largest value in this data set.
+         *
+         * @return a value instance, <tt>null</tt> if empty
+         */
+        public Value getMaximum() {
+                return getSummary().getMaximum();
+        }
+
+        /**
+         * Calculates the range (largest less smallest value) of this data set.
+         *
+         * @return a value instance, <tt>null</tt> if empty
+         */
+        public Value getRange() {
+                Summary s = getSummary();
+
+                if (s.getCount() == 0) {
+                        return null;
+                }
+
+                return new Value(s.getMaximum().doubleValue()
+                                - s.getMinimum().doubleValue());
+        }
+
+        /**
+         * Counts the values of this data set which are equal to the specified
+         * value. With <tt>PARTITION_BY_VALUE</tt> only the shard holding the
+         * value is searched, otherwise the counts of all shards are added up.
+         * Shards maintaining a heavy-hitters sketch give estimates, see
+         * <tt>DataSet.getFrequency()</tt>.
+         *
+         * @param value
+         *            to be counted
+         * @return a count of values, <tt>null</tt> if empty
+         */
+        public Value getFrequency(final double value) {
+                if (isEmpty()) {
+                        return null;
+                }
+
+                if (partitioning == PARTITION_BY_VALUE) {
+                        Value v = shards[hashIndex(value)].getFrequency(value);
+                        return v != null ? v : new Value(0);
+                }
+
+                Object results[] = forEachShard(new ShardTask() {
+                        Object run(DataSet shard) {
+                                return shard.getFrequency(value);
+                        }
+                });
+
+                long count = 0;
+
+                for (int i = 0; i < results.length; i++) {
+                        if (results[i] != null) {
+                                count += ((Value) results[i]).longValue();
+                        }
+                }
+
+                return new Value(count);
+        }
+
+        /**
+         * Counts the values of this data set which are equal to the specified
+         * value. See <tt>getFrequency(double)</tt>.
+         *
+         * @param value
+         *            to be counted
+         * @return a count of values, <tt>null</tt> if empty or if the value is
+         *         <tt>null</tt>
+         */
+        public Value getFrequency(Number value) {
+                return value != null ? getFrequency(value.doubleValue()) : null;
+        }
+
+        /**
+         * Requests the rank of the specified value: the number of values of this
+         * data set which are strictly smaller, added up over the shards. See
+         * <tt>DataSet.getRank()</tt>.
+         *
+         * @param value
+         *            to be ranked
+         * @return a count of values
+         */
+        public int getRank(final double value) {
+                Object results[] = forEachShard(new ShardTask() {
+                        Object run(DataSet shard) {
+                                return Integer.valueOf(shard.getRank(value));
+                        }
+                });
+
+                return sum(results);
+        }
+
+        /**
+         * Requests the percentile rank of the specified value: the percentage of
+         * the values of this data set which are smaller than or equal to it. See
+         * <tt>DataSet.getPercentileRank()</tt>.
+         *
+         * @param value
+         *            to be ranked
+         * @return a percentage between 0 and 100, <tt>null</tt> if empty
+         */
+        public Value getPercentileRank(final double value) {
+                Object results[] = forEachShard(new ShardTask() {
+                        Object run(DataSet shard) {
+                                return new int[] { shard.getCount(),
+                                                shard.getCountBetween(Double.NEGATIVE_INFINITY, value) };
+                        }
+                });
+
+                long count = 0;
+                long below = 0;
+
+                for (int i = 0; i < results.length; i++) {
+                        count += ((int[]) results[i])[0];
+                        below += ((int[]) results[i])[1];
+                }
+
+                return count > 0 ? new Value(100.0 * below / count) : null;
+        }
+
+        /**
+         * Requests the value at the specified position of this data set sorted in
+         * ascending order: the smallest value has a rank of zero.
+         *
+         * @param rank
+         *            of the value
+         * @return a value instance, <tt>null</tt> if the rank is out of range
+         */
+        public Value getValueAtRank(int rank) {
+                double sorted[] = getSortedValues();
+
+                return rank >= 0 && rank < sorted.length ? new Value(sorted[rank])
+                                : null;
+        }
+
+        /**
+         * Creates a new data set containing the 'Nth' largest values of this data
+         * set, in ascending order. Each shard selects its own 'Nth' largest
+         * values (see <tt>DataSet.getLargest()</tt>) and the candidates are
+         * merged.
+         *
+         * @param Nth
+         *            number of values to be taken
+         * @return a new data set instance, <tt>null</tt> if none
+         */
+        public DataSet getLargest(int Nth) {
+                return getExtremes(Nth, true);
+        }
+
+        /**
+         * Creates a new data set containing the 'Nth' smallest values of this
+         * data set, in ascending order. See <tt>getLargest()</tt>.
+         *
+         * @param Nth
+         *            number of values to be taken
+         * @return a new data set instance, <tt>null</tt> if none
+         */
+        public DataSet getSmallest(int Nth) {
+                return getExtremes(Nth, false);
+        }
+
+        /**
+         * Calculates the median of this data set, like <tt>DataSet.getMedian()</tt>.
+         *
+         * @return a computation of the median value, <tt>null</tt> if empty
+         */
+        public Value getMedian() {
+                double sorted[] = getSortedValues();
+                int count = sorted.length;
+                Value median = null;
+
+                if (count > 0) {
+                        int index = count / 2;
+
+                        if (count % 2 == 0) {
+                                median = new Value((sorted[index] + sorted[index - 1]) / 2);
+                        } else {
+                                median = new Value(sorted[index]);
+                        }
+                }
+
+                log.debug("Median = " + median);
+
+                return median;
+        }
+
+        /**
+         * Returns the mode, or most frequently occuring value. When several
+         * values are tied, the smallest is returned.
+         *
+         * @return a value instance, <tt>null</tt> if empty
+         */
+        public Value getMode() {
+                double sorted[] = getSortedValues();
+                Value mode = null;
+                int best = 0;
+                int run = 0;
+
+                for (int i = 0; i < sorted.length; i++) {
+                        run = (i > 0 && sorted[i] == sorted[i - 1]) ? run + 1 : 1;
+
+                        if (run > best) {
+                                best = run;
+                                mode = new Value(sorted[i]);
+                        }
+                }
+
+                return mode;
+        }
+
+        /**
+         * Returns the 'count' most frequently occuring values, ordered by
+         * decreasing frequency, like <tt>DataSet.getMode(int)</tt>. Values of
+         * equal frequency are ordered from the smallest. The frequencies are
+         * exact, the shards being merged before counting.
+         *
+         * @param count
+         *            number of values to be taken
+         * @return a new data set instance, <tt>null</tt> if empty
+         */
+        public DataSet getMode(int count) {
+                double sorted[] = getSortedValues();
+                int n = 0;
+
+                if (sorted.length == 0 || count <= 0) {
+                        return null;
+                }
+
+                // Distinct values, in ascending order, with their frequencies
+                double keys[] = new double[sorted.length];
+                double frequencies[] = new double[sorted.length];
+
+                for (int i = 0; i < sorted.length; i++) {
+                        if (i > 0 && sorted[i] == sorted[i - 1]) {
+                                frequencies[n - 1]++;
+                        } else {
+                                keys[n] = sorted[i];
+                                frequencies[n++] = 1;
+                        }
+                }
+
+                // Stable, ties keep the smallest value first
+                int order[] = Sorter.order(frequencies, 0, n, true);
+                int taken = Math.min(count, n);
+                double modes[] = new double[taken];
+
+                for (int i = 0; i < taken; i++) {
+                        modes[i] = keys[order[i]];
+                }
+
+                return DataSet.wrap(modes);
+        }
+
+        /**
+         * Creates a new primitive-backed data set containing all values of this
+         * data set in ascending order.
+         *
+         * @return a sorted data set
+         */
+        public DataSet getSorted() {
+                DataSet ds = DataSet.wrap(getSortedValues());
+                ds.setSorted(true);
+                return ds;
+        }
+
+        /**
+         * Retrieves all values of this data set in ascending order, each shard
+         * being sorted separately and the shards then merged.
+         *
+         * @return a new array of values
+         */
+        public double[] getSortedValues() {
+                Object results[] = forEachShard(new ShardTask() {
+                        Object run(DataSet shard) {
+                                double data[] = shard.getDoubleValues();
+
+                                if (data == null) {
+                                        data = new double[0];
+                                }
+
+                                Arrays.sort(data);
+
+                                return data;
+                        }
+                });
+
+                double runs[][] = new double[results.length][];
+
+                for (int i = 0; i < results.length; i++) {
+                        runs[i] = (double[]) results[i];
+                }
+
+                return merge(runs);
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Work performed on each shard by <tt>forEachShard()</tt>.
+         */
+        private abstract static class ShardTask {
+                abstract Object run(DataSet shard);
+        }
+
+        private DataSet shardFor(double value) {
+                int index;
+
+                if (partitioning == PARTITION_BY_VALUE) {
+                        index = hashIndex(value);
+                } else {
+                        index = (next.getAndIncrement() & 0x7fffffff) % shards.length;
+                }
+
+                return shards[index];
+        }
+
+        /**
+         * Requests the index of the shard holding the specified value with
+         * <tt>PARTITION_BY_VALUE</tt>.
+         */
+        private int hashIndex(double value) {
+                long bits = DoubleIntMap.canonical(value);
+                int h = (int) (bits ^ (bits >>> 32));
+
+                return ((h ^ (h >>> 16)) & 0x7fffffff) % shards.length;
+        }
+
+        /**
+         * Selects the 'Nth' largest or smallest values from the candidates of
+         * each shard.
+         */
+        private DataSet getExtremes(final int Nth, final boolean largest) {
+                if (Nth <= 0) {
+                        return null;
+                }
+
+                Object results[] = forEachShard(new ShardTask() {
+                        Object run(DataSet shard) {
+                                DataSet ds = largest ? shard.getLargest(Nth) : shard
+                                                .getSmallest(Nth);
+                                double data[] = ds != null ? ds.getDoubleValues() : null;
+
+                                return data != null ? data : new double[0];
+                        }
+                });
+
+                double runs[][] = new double[results.length][];
+
+                for (int i = 0; i < results.length; i++) {
+                        runs[i] = (double[]) results[i];
+                }
+
+                double merged[] = merge(runs);
+                int count = Math.min(Nth, merged.length);
+
+                if (count == 0) {
+                        return null;
+                }
+
+                double selected[] = new double[count];
+
+                System.arraycopy(merged, largest ? merged.length - count : 0,
+                                selected, 0, count);
+
+                DataSet ds = DataSet.wrap(selected);
+                ds.setSorted(true);
+                return ds;
+        }
+
+        private static int sum(Object counts[]) {
+                int sum = 0;
+
+                for (int i = 0; i < counts.length; i++) {
+                        sum += ((Integer) counts[i]).intValue();
+                }
+
+                return sum;
+        }
+
+        /**
+         * Runs the specified task on every shard, in parallel when an executor is
+         * available.
+         *
+         * @return the result of each shard, by shard index
+         */
+        private Object[] forEachShard(final ShardTask task) {
+                Object results[] = new Object[shards.length];
+
+                if (executor == null || shards.length == 1) {
+                        for (int i = 0; i < shards.length; i++) {
+                                results[i] = task.run(shards[i]);
+                        }
+
+                        return results;
+                }
+
+                List futures = new ArrayList(shards.length);
+
+                for (int i = 0; i < shards.length; i++) {
+                        final DataSet shard = shards[i];
+
+                        futures.add(executor.submit(new Callable() {
+                                public Object call() {
+                                        return task.run(shard);
+                                }
+                        }));
+                }
+
+                try {
+                        for (int i = 0; i < shards.length; i++) {
+                                results[i] = ((Future) futures.get(i)).get();
+                        }
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while computing shards");
+                } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+
+                        if (cause instanceof RuntimeException) {
+                                throw (RuntimeException) cause;
+                        }
+
+                        throw new IllegalStateException(String.valueOf(cause));
+                }
+
+                return results;
+        }
+
+        /**
+         * Merges the specified sorted runs into one sorted array, using a binary
+         * heap of run indexes keyed on their current head.
+         *
+         * @param runs
+         *            arrays sorted in ascending order
+         * @return a new sorted array
+         */
+        static double[] merge(double runs[][]) {
+                int total = 0;
+                int k = 0;
+
+                for (int i = 0; i < runs.length; i++) {
+                        total += runs[i].length;
+                }
+
+                double out[] = new double[total];
+                int heap[] = new int[runs.length];
+                int pos[] = new int[runs.length];
+
+                for (int i = 0; i < runs.length; i++) {
+                        if (runs[i].length > 0) {
+                                heap[k++] = i;
+                        }
+                }
+
+                for (int i = k / 2 - 1; i >= 0; i--) {
+                        siftDown(heap, k, i, runs, pos);
+                }
+
+                for (int o = 0; o < total; o++) {
+                        int r = heap[0];
+
+                        out[o] = runs[r][pos[r]++];
+
+                        if (pos[r] == runs[r].length) {
+                                heap[0] = heap[--k];
+                        }
+
+                        siftDown(heap, k, 0, runs, pos);
+                }
+
+                return out;
+        }
+
+        private static void siftDown(int heap[], int k, int i, double runs[][],
+                        int pos[]) {
+                int r = heap[i];
+
+                while (true) {
+                        int child = 2 * i + 1;
+
+                        if (child >= k) {
+                                break;
+                        }
+
+                        if (child + 1 < k
+                                        && Double.compare(head(heap[child + 1], runs, pos), head(
+                                                        heap[child], runs, pos)) < 0) {
+                                child++;
+                        }
+
+                        if (Double.compare(head(r, runs, pos), head(heap[child], runs, pos)) <= 0) {
+                                break;
+                        }
+
+                        heap[i] = heap[child];
+                        i = child;
+                }
+
+                heap[i] = r;
+        }
+
+        private static double head(int r, double runs[][], int pos[]) {
+                return runs[r][pos[r]];
+        }
+
+        /**
+         * Returns a string representation of this data set.
+         *
+         * @return a string representation of the object.
+         */
+        public String toString() {
+                return "ShardedDataSet[shards=" + shards.length + ", count="
+                                + getCount() + "]";
+        }
+}
@@ -0,0 +1,230 @@
+/*
+ * Sorter.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+/**
+ * Sorts numerical values held in primitive arrays, either in place or by
+ * computing the permutation which sorts them, so that the objects the values
+ * belong to (such as <tt>Value</tt> instances and their correlations) can be
+ * reordered alongside.
+ * <p>
+ * Values are ordered like <tt>Double.compare()</tt>: -0.0 comes before 0.0
+ * and not-a-number values come after positive infinity. Sorting is stable,
+ * equal values keep their relative order in either direction.
+ * <p>
+ * Each value is mapped to a 64-bit key whose unsigned order is the numerical
+ * order, by flipping all the bits of negative values and the sign bit of the
+ * others. Tiny ranges are sorted by insertion, and larger ones by a
+ * least-significant-digit radix sort on the bytes of the keys, which takes
+ * linear time. Passes over bytes which are the same for every key (such as
+ * the low-order bytes of integral values) are skipped.
+ */
+final class Sorter {
+
+        // Largest range sorted by insertion rather than radix
+        private static final int INSERTION_LIMIT = 32;
+
+        private Sorter() {
+        }
+
+        /**
+         * Sorts a range of the specified array in place.
+         *
+         * @param a
+         *            array of values
+         * @param from
+         *            index of the first value, inclusive
+         * @param to
+         *            index of the last value, exclusive
+         * @param reversed
+         *            <tt>true</tt> for descending order
+         */
+        static void sort(double a[], int from, int to, boolean reversed) {
+                int n = to - from;
+                long keys[] = new long[n];
+
+                for (int i = 0; i < n; i++) {
+                        keys[i] = key(a[from + i], reversed);
+                }
+
+                sort(keys, null, n);
+
+                for (int i = 0; i < n; i++) {
+                        a[from + i] = value(keys[i], reversed);
+                }
+        }
+
+        /**
+         * Computes the permutation sorting a range of the specified array, which
+         * is left untouched: the i-th smallest value (or largest when reversed)
+         * is at index <tt>from + order[i]</tt>.
+         *
+         * @param a
+         *            array of values
+         * @param from
+         *            index of the first value, inclusive
+         * @param to
+         *            index of the last value, exclusive
+         * @param reversed
+         *            <tt>true</tt> for descending order
+         * @return the permutation, of length <tt>to - from</tt>
+         */
+        static int[] order(double a[], int from, int to, boolean reversed) {
+                int n = to - from;
+                long keys[] = new long[n];
+                int order[] = new int[n];
+
+                for (int i = 0; i < n; i++) {
+                        keys[i] = key(a[from + i], reversed);
+                        order[i] = i;
+                }
+
+                sort(keys, order, n);
+
+                return order;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        private static long key(double value, boolean reversed) {
+                long bits = Double.doubleToLongBits(value);
+                long key = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+                return reversed ? ~key : key;
+        }
+
+        private static double value(long key, boolean reversed) {
+                if (reversed) {
+                        key = ~key;
+                }
+
+                return Double.longBitsToDouble(key < 0 ? key ^ Long.MIN_VALUE : ~key);
+        }
+
+        /**
+         * Sorts the keys in unsigned order, applying the same moves to the
+         * permutation when there is one.
+         */
+        private static void sort(long keys[], int order[], int n) {
+                if (n <= INSERTION_LIMIT) {
+                        insertion(keys, order, n);
+                } else {
+                        radix(keys, order, n);
+                }
+        }
+
+        private static void insertion(long keys[], int order[], int n) {
+                for (int i = 1; i < n; i++) {
+                        long k = keys[i];
+                        int o = order != null ? order[i] : 0;
+                        int j = i - 1;
+
+                        while (j >= 0 && (keys[j] ^ Long.MIN_VALUE) > (k ^ Long.MIN_VALUE)) {
+                                keys[j + 1] = keys[j];
+
+                                if (order != null) {
+                                        order[j + 1] = order[j];
+                                }
+
+                                j--;
+                        }
+
+                        keys[j + 1] = k;
+
+                        if (order != null) {
+                                order[j + 1] = o;
+                        }
+                }
+        }
+
+        private static void radix(long keys[], int order[], int n) {
+                long sortedKeys[] = keys;
+                int sortedOrder[] = order;
+                int counts[][] = new int[8][256];
+
+                for (int i = 0; i < n; i++) {
+                        long k = keys[i];
+
+                        for (int b = 0; b < 8; b++) {
+                                counts[b][(int) (k >>> (b << 3)) & 0xff]++;
+                        }
+                }
+
+                long keysBuffer[] = null;
+                int orderBuffer[] = null;
+
+                for (int b = 0; b < 8; b++) {
+                        int count[] = counts[b];
+                        int shift = b << 3;
+
+                        if (count[(int) (keys[0] >>> shift) & 0xff] == n) {
+                                continue; // Same byte for every key
+                        }
+
+                        if (keysBuffer == null) {
+                                keysBuffer = new long[n];
+                                orderBuffer = order != null ? new int[n] : null;
+                        }
+
+                        // Turn the counts into the starting position of each byte
+                        int position = 0;
+
+                        for (int d = 0; d < 256; d++) {
+                                int c = count[d];
+                                count[d] = position;
+                                position += c;
+                        }
+
+                        for (int i = 0; i < n; i++) {
+                                int p = count[(int) (keys[i] >>> shift) & 0xff]++;
+                                keysBuffer[p] = keys[i];
+
+                                if (order != null) {
+                                        orderBuffer[p] = order[i];
+                                }
+                        }
+
+                        long k[] = keys;
+                        keys = keysBuffer;
+                        keysBuffer = k;
+
+                        int o[] = order;
+                        order = orderBuffer;
+                        orderBuffer = o;
+                }
+
+                // After an odd number of passes the result is in the buffers
+                if (keys != sortedKeys) {
+                        System.arraycopy(keys, 0, sortedKeys, 0, n);
+
+                        if (order != null) {
+                                System.arraycopy(order, 0, sortedOrder, 0, n);
+                        }
+                }
+        }
+}
@@ -0,0 +1,171 @@
+/*
+ * SplitRandom.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jeach.stats;
+
+import java.util.Random;
+
+/**
+ * A splittable pseudo-random number generator based on Steele, Lea and
+ * Flood's <i>SplitMix64</i>. Each instance is a 64-bit counter advanced by an
+ * odd increment (its gamma) and passed through a mixing function, which is
+ * much cheaper than <tt>java.util.Random</tt> and has no shared atomic state.
+ * <p>
+ * Splitting a generator derives both the seed and the gamma of the new one
+ * from the parent, like <tt>SplittableRandom</tt>: the two counters walk
+ * different Weyl sequences rather than windows of the same one, so their
+ * streams are statistically independent.
+ * <p>
+ * Instances are not thread-safe. Each thread gets its own generator through
+ * <tt>current()</tt>, split from a common root. A generator constructed with
+ * an explicit seed always produces the same sequence.
+ */
+final class SplitRandom extends Random {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+        private static final SplitRandom ROOT = new SplitRandom(mix64(System
+                        .currentTimeMillis())
+                        ^ mix64(System.nanoTime()));
+
+        private static final ThreadLocal LOCAL = new ThreadLocal() {
+                protected Object initialValue() {
+                        synchronized (ROOT) {
+                                return ROOT.split();
+                        }
+                }
+        };
+
+        private long state;
+        private final long gamma; // odd increment of the state
+
+        /**
+         * Constructs a generator producing the sequence of the specified seed.
+         *
+         * @param seed
+         *            initial state
+         */
+        SplitRandom(long seed) {
+                this(seed, GOLDEN_GAMMA);
+        }
+
+        private SplitRandom(long seed, long gamma) {
+                super(0L);
+                this.state = seed;
+                this.gamma = gamma;
+        }
+
+        /**
+         * Requests the generator owned by the calling thread.
+         *
+         * @return a generator instance, never shared between threads
+         */
+        static SplitRandom current() {
+                return (SplitRandom) LOCAL.get();
+        }
+
+        /**
+         * Creates a new generator whose sequence is independent from the one of
+         * this generator. This generator is advanced.
+         *
+         * @return a new generator instance
+         */
+        SplitRandom split() {
+                return new SplitRandom(mix64(nextSeed()), mixGamma(nextSeed()));
+        }
+
+        /**
+         * Ignored, the state of this generator is only set at construction.
+         * <tt>java.util.Random</tt> calls this from its constructor.
+         */
+        public synchronized void setSeed(long seed) {
+        }
+
+        public long nextLong() {
+                return mix64(nextSeed());
+        }
+
+        public int nextInt() {
+                return (int) (mix64(nextSeed()) >>> 32);
+        }
+
+        /**
+         * Draws a uniform integer in <tt>[0, bound)</tt> using Lemire's
+         * multiply-shift with rejection, which avoids the division of the
+         * inherited implementation.
+         */
+        public int nextInt(int bound) {
+                if (bound <= 0) {
+                        throw new IllegalArgumentException("Bound must be positive: "
+                                        + bound);
+                }
+
+                long m = (nextLong() >>> 32) * bound;
+                long low = m & 0xffffffffL;
+
+                if (low < bound) {
+                        long threshold = (0x100000000L - bound) % bound;
+
+                        while (low < threshold) {
+                                m = (nextLong() >>> 32) * bound;
+                                low = m & 0xffffffffL;
+                        }
+                }
+
+                return (int) (m >>> 32);
+        }
+
+        public double nextDouble() {
+                return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+
+        protected int next(int bits) {
+                return (int) (mix64(nextSeed()) >>> (64 - bits));
+        }
+
+        private long nextSeed() {
+                return state += gamma;
+        }
+
+        private static long mix64(long z) {
+                z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+                z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+                return z ^ (z >>> 31);
+        }
+
+        /**
+         * Derives an odd gamma from the specified seed, avoiding those with too
+         * few bit transitions, whose sequences look regular.
+         */
+        private static long mixGamma(long z) {
+                z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+                z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+                z = (z ^ (z >>> 33)) | 1L;
+
+                return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+        }
+}
@@ -0,0 +1,430 @@
+/*
+ * Summary.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jeach.stats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The <code>Summary</code> class holds the moments of a set of values in a
+ * few dozen bytes: count, compensated sum, minimum, maximum, mean and the
+ * second, third and fourth central moments.
+ * <p>
+ * Summaries are built in a single pass (see <tt>DataSet.getSummary()</tt>) and
+ * can be merged. Merging is exact in the sense that the merged summary of two
+ * data sets has the same moments as the summary of their union (up to
+ * floating point rounding), so statistics of data sharded across many nodes
+ * are obtained by shipping and merging summaries instead of values.
+ * <p>
+ * Moments are updated with the numerically stable formulas of Welford,
+ * Terriberry and Pebay, and the sum uses Neumaier's compensated summation.
+ * <p>
+ * The binary form produced by <tt>toBytes()</tt> is stable across releases:
+ * a version byte followed by the fields in big-endian order.
+ * <p>
+ * All operations are synchronized on the summary instance.
+ */
+public class Summary {
+
+        /** Version of the binary encoding */
+        private static final byte VERSION = 1;
+
+        /** Size of the binary encoding, in bytes */
+        public static final int ENCODED_SIZE = 1 + 8 * 9;
+
+        private long count = 0;
+        private double sum = 0.0;
+        private double compensation = 0.0;
+        private double min = Double.NaN;
+        private double max = Double.NaN;
+        private double mean = 0.0;
+        private double m2 = 0.0;
+        private double m3 = 0.0;
+        private double m4 = 0.0;
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Constructors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Constructs an empty summary.
+         */
+        public Summary() {
+                super();
+        }
+
+        /**
+         * Constructs a summary of the specified values.
+         *
+         * @param values
+         *            to be summarized
+         */
+        public Summary(double values[]) {
+                if (values != null) {
+                        for (int i = 0; i < values.length; i++) {
+                                add(values[i]);
+                        }
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Update Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Adds one value to this summary.
+         *
+         * @param value
+         *            to be added
+         */
+        public synchronized void add(double value) {
+                long n1 = count;
+                double n = ++count;
+
+                double delta = value - mean;
+                double deltaN = delta / n;
+                double deltaN2 = deltaN * deltaN;
+                double term = delta * deltaN * n1;
+
+                mean += deltaN;
+                m4 += term * deltaN2 * (n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4
+                                * deltaN * m3;
+                m3 += term * deltaN * (n - 2) - 3 * deltaN * m2;
+                m2 += term;
+
+                // Neumaier's variant of Kahan summation
+                double t = sum + value;
+
+                if (Math.abs(sum) >= Math.abs(value)) {
+                        compensation += (sum - t) + value;
+                } else {
+                        compensation += (value - t) + sum;
+                }
+
+                sum = t;
+
+                if (n1 == 0) {
+                        min = value;
+                        max = value;
+                } else {
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                }
+        }
+
+        /**
+         * Merges the specified summary into this one. Afterwards, this summary
+         * describes the union of both sets of values. The specified summary is
+         * not modified.
+         *
+         * @param summary
+         *            to be merged
+         * @return this summary
+         */
+        public Summary merge(Summary summary) {
+                if (summary == null) {
+                        return this;
+                }
+
+                Summary b = summary.getCopy();
+
+                synchronized (this) {
+                        if (b.count == 0) {
+                                return this;
+                        }
+
+                        if (count == 0) {
+                                set(b);
+                                return this;
+                        }
+
+                        double na = count;
+                        double nb = b.count;
+                        double n = na + nb;
+                        double delta = b.mean - mean;
+                        double delta2 = delta * delta;
+                        double delta3 = delta2 * delta;
+                        double delta4 = delta2 * delta2;
+
+                        double m4n = m4 + b.m4 + delta4 * na * nb
+                                        * (na * na - na * nb + nb * nb) / (n * n * n) + 6
+                                        * delta2 * (na * na * b.m2 + nb * nb * m2) / (n * n) + 4
+                                        * delta * (na * b.m3 - nb * m3) / n;
+                        double m3n = m3 + b.m3 + delta3 * na * nb * (na - nb) / (n * n) + 3
+                                        * delta * (na * b.m2 - nb * m2) / n;
+                        double m2n = m2 + b.m2 + delta2 * na * nb / n;
+
+                        mean += delta * nb / n;
+                        m2 = m2n;
+                        m3 = m3n;
+                        m4 = m4n;
+                        count += b.count;
+
+                        // Two-sum of the partial sums, keeping the rounding error
+                        double t = sum + b.sum;
+
+                        if (Math.abs(sum) >= Math.abs(b.sum)) {
+                                compensation += (sum - t) + b.sum;
+                        } else {
+                                compensation += (b.sum - t) + sum;
+                        }
+
+                        compensation += b.compensation;
+                        sum = t;
+
+                        min = Math.min(min, b.min);
+                        max = Math.max(max, b.max);
+                }
+
+                return this;
+        }
+
+        /**
+         * Creates a copy of this summary.
+         *
+         * @return a new summary instance
+         */
+        public synchronized Summary getCopy() {
+                Summary s = new Summary();
+                s.set(this);
+                return s;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Statistics Section
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the number of values summarized.
+         *
+         * @return a count of values
+         */
+        public synchronized long getCount() {
+                return count;
+        }
+
+        /**
+         * Retrieves the compensated sum of the values.
+         *
+         * @return a value instance, <tt>null</tt> if the summary is empty
+         */
+        public synchronized Value getSummation() {
+                return count > 0 ? new Value(sum + compensation) : null;
+        }
+
+        /**
+         * Retrieves the smallest value.
+         *
+         * @return a value instance, <tt>null</tt> if the summary is empty
+         */
+        public synchronized Value getMinimum() {
+                return count > 0 ? new Value(min) : null;
+        }
+
+        /**
+         * Retrieves the largest value.
+         *
+         * @return a value instance, <tt>null</tt> if the summary is empty
+         */
+        public synchronized Value getMaximum() {
+                return count > 0 ? new Value(max) : null;
+        }
+
+        /**
+         * Retrieves the arithmetic mean of the values.
+         *
+         * @return a value instance, <tt>null</tt> if the summary is empty
+         */
+        public synchronized Value getMean() {
+                return count > 0 ? new Value(mean) : null;
+        }
+
+        /**
+         * Retrieves the variance of the values, dividing by the count like
+         * <tt>DataSet.getVariance()</tt>.
+         *
+         * @return a value instance, <tt>null</tt> if the summary is empty
+         */
+        public synchronized Value getVariance() {
+                return count > 0 ? new Value(m2 / count) : null;
+        }
+
+        /**
+         * Retrieves the sample standard deviation of the values, dividing by the
+         * count less one like <tt>DataSet.getStandardDeviation()</tt>.
+         *
+         * @return a value instance, <tt>null</tt> if there are less than two
+         *         values
+         */
+        public synchronized Value getStandardDeviation() {
+                return count > 1 ? new Value(Math.sqrt(m2 / (count - 1))) : null;
+        }
+
+        /**
+         * Retrieves the skewness of the values, <tt>sqrt(n) M3 / M2^1.5</tt>.
+         *
+         * @return a value instance, <tt>null</tt> if there are no values or they
+         *         are all equal
+         */
+        public synchronized Value getSkewness() {
+                if (count == 0 || m2 == 0.0) {
+                        return null;
+                }
+
+                return new Value(Math.sqrt((double) count) * m3 / Math.pow(m2, 1.5));
+        }
+
+        /**
+         * Retrieves the excess kurtosis of the values, <tt>n M4 / M2^2 - 3</tt>.
+         *
+         * @return a value instance, <tt>null</tt> if there are no values or they
+         *         are all equal
+         */
+        public synchronized Value getKurtosis() {
+                if (count == 0 || m2 == 0.0) {
+                        return null;
+                }
+
+                return new Value(count * m4 / (m2 * m2) - 3.0);
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Encoding Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Writes the binary form of this summary to the specified output.
+         *
+         * @param out
+         *            destination of the summary
+         * @throws IOException
+         *             if the output fails
+         */
+        public synchronized void write(DataOutput out) throws IOException {
+                out.writeByte(VERSION);
+                out.writeLong(count);
+                out.writeDouble(sum);
+                out.writeDouble(compensation);
+                out.writeDouble(min);
+                out.writeDouble(max);
+                out.writeDouble(mean);
+                out.writeDouble(m2);
+                out.writeDouble(m3);
+                out.writeDouble(m4);
+        }
+
+        /**
+         * Reads a summary from its binary form.
+         *
+         * @param in
+         *            source of the summary
+         * @return a new summary instance
+         * @throws IOException
+         *             if the input fails or is not a summary
+         */
+        public static Summary read(DataInput in) throws IOException {
+                Summary s = new Summary();
+                byte version = in.readByte();
+
+                if (version != VERSION) {
+                        throw new IOException("Unsupported summary version: " + version);
+                }
+
+                s.count = in.readLong();
+                s.sum = in.readDouble();
+                s.compensation = in.readDouble();
+                s.min = in.readDouble();
+                s.max = in.readDouble();
+                s.mean = in.readDouble();
+                s.m2 = in.readDouble();
+                s.m3 = in.readDouble();
+                s.m4 = in.readDouble();
+
+                return s;
+        }
+
+        /**
+         * Encodes this summary into its binary form.
+         *
+         * @return an array of <tt>ENCODED_SIZE</tt> bytes
+         */
+        public byte[] toBytes() {
+                ByteArrayOutputStream buf = new ByteArrayOutputStream(ENCODED_SIZE);
+
+                try {
+                        write(new DataOutputStream(buf));
+                } catch (IOException e) {
+                        // Not thrown by an in-memory stream
+                        throw new IllegalStateException(e.toString());
+                }
+
+                return buf.toByteArray();
+        }
+
+        /**
+         * Decodes a summary from its binary form.
+         *
+         * @param bytes
+         *            produced by <tt>toBytes()</tt>
+         * @return a new summary instance
+         * @throws IOException
+         *             if the bytes are not a summary
+         */
+        public static Summary fromBytes(byte bytes[]) throws IOException {
+                return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        private void set(Summary s) {
+                count = s.count;
+                sum = s.sum;
+                compensation = s.compensation;
+                min = s.min;
+                max = s.max;
+                mean = s.mean;
+                m2 = s.m2;
+                m3 = s.m3;
+                m4 = s.m4;
+        }
+
+        /**
+         * Returns a string representation of this summary.
+         *
+         * @return a string representation of the object.
+         */
+        public synchronized String toString() {
+                return "Summary[count=" + count + ", mean=" + mean + ", min=" + min
+                                + ", max=" + max + "]";
+        }
+}
@@ -0,0 +1,293 @@
+/*
+ * TextOutput.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Buffered text output of numerical values to an <tt>Appendable</tt> (such
+ * as a <tt>Writer</tt> or a <tt>StringBuffer</tt>) or to a byte channel, in
+ * constant memory however many values are written.
+ * <p>
+ * Values are formatted straight into a reusable character buffer. A value
+ * having at most eight decimals and lying in <tt>[0.001, 10^7)</tt>, which
+ * covers most samples, is formatted from its digits without creating any
+ * object; any other value is formatted by <tt>Double.toString()</tt>. Either
+ * way the text is parsed back to the exact same <tt>double</tt>.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class TextOutput {
+
+        private static final int BUFFER_SIZE = 8192;
+
+        /** Room for the longest text of a double */
+        private static final int VALUE_LENGTH = 32;
+
+        private static final long POWERS[] = { 1L, 10L, 100L, 1000L, 10000L,
+                        100000L, 1000000L, 10000000L, 100000000L };
+
+        private static final double LIMIT = 9007199254740992.0; // 2^53
+
+        private final Appendable out;
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder;
+        private final ByteBuffer bytes;
+        private final char buffer[] = new char[BUFFER_SIZE];
+        private int length = 0;
+
+        /**
+         * Constructs an output appending to the specified destination.
+         *
+         * @param out
+         *            destination of the text
+         */
+        TextOutput(Appendable out) {
+                if (out == null) {
+                        throw new IllegalArgumentException("Output is null");
+                }
+
+                this.out = out;
+                this.channel = null;
+                this.encoder = null;
+                this.bytes = null;
+        }
+
+        /**
+         * Constructs an output writing the text encoded with the specified
+         * character set to the specified channel.
+         *
+         * @param channel
+         *            destination of the encoded text
+         * @param charset
+         *            encoding of the text
+         */
+        TextOutput(WritableByteChannel channel, Charset charset) {
+                if (channel == null) {
+                        throw new IllegalArgumentException("Channel is null");
+                }
+
+                this.out = null;
+                this.channel = channel;
+                this.encoder = charset.newEncoder().onMalformedInput(
+                                CodingErrorAction.REPLACE).onUnmappableCharacter(
+                                CodingErrorAction.REPLACE);
+                this.bytes = ByteBuffer.allocate((int) (BUFFER_SIZE * encoder
+                                .maxBytesPerChar()));
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Output
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Writes the text of the specified value.
+         *
+         * @param value
+         *            to be written
+         * @throws IOException
+         *             if the destination fails
+         */
+        void write(double value) throws IOException {
+                if (length + VALUE_LENGTH > buffer.length) {
+                        drain();
+                }
+
+                length = format(value, buffer, length);
+        }
+
+        /**
+         * Writes the specified text.
+         *
+         * @param text
+         *            to be written
+         * @throws IOException
+         *             if the destination fails
+         */
+        void write(String text) throws IOException {
+                int n = text.length();
+                int from = 0;
+
+                while (from < n) {
+                        if (length == buffer.length) {
+                                drain();
+                        }
+
+                        int count = Math.min(n - from, buffer.length - length);
+
+                        text.getChars(from, from + count, buffer, length);
+                        length += count;
+                        from += count;
+                }
+        }
+
+        /**
+         * Writes the buffered text to the destination, and ends the encoding of
+         * a channel. Nothing may be written afterwards to a channel.
+         *
+         * @throws IOException
+         *             if the destination fails
+         */
+        void finish() throws IOException {
+                drain();
+
+                if (channel != null) {
+                        encode(CharBuffer.allocate(0), true);
+                        flush(encoder.flush(bytes));
+                } else if (out instanceof Writer) {
+                        ((Writer) out).flush();
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Formatting
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Formats the specified value into the specified buffer.
+         *
+         * @param value
+         *            to be formatted
+         * @param buf
+         *            buffer with at least 32 characters available
+         * @param at
+         *            index of the first character
+         * @return index following the last character
+         */
+        static int format(double value, char buf[], int at) {
+                double magnitude = Math.abs(value);
+
+                if (magnitude >= 0.001 && magnitude < 10000000.0) {
+                        // The fewest decimals giving back the value, if any
+                        for (int k = 0; k < POWERS.length; k++) {
+                                double scaled = magnitude * POWERS[k];
+
+                                if (scaled >= LIMIT) {
+                                        break;
+                                }
+
+                                long digits = (long) Math.rint(scaled);
+
+                                if (digits / (double) POWERS[k] == magnitude) {
+                                        if (value < 0.0) {
+                                                buf[at++] = '-';
+                                        }
+
+                                        at = digits(digits / POWERS[k], 1, buf, at);
+                                        buf[at++] = '.';
+
+                                        return k == 0 ? digits(0L, 1, buf, at) : digits(
+                                                        digits % POWERS[k], k, buf, at);
+                                }
+                        }
+                }
+
+                String text = Double.toString(value);
+
+                text.getChars(0, text.length(), buf, at);
+
+                return at + text.length();
+        }
+
+        /**
+         * Formats a positive number with at least the specified count of digits,
+         * padded with leading zeros.
+         */
+        private static int digits(long number, int count, char buf[], int at) {
+                int n = 1;
+
+                for (long x = number / 10; x > 0; x /= 10) {
+                        n++;
+                }
+
+                n = Math.max(n, count);
+
+                for (int i = at + n - 1; i >= at; i--) {
+                        buf[i] = (char) ('0' + number % 10);
+                        number /= 10;
+                }
+
+                return at + n;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Writes the buffered text to the destination and empties the buffer.
+         */
+        private void drain() throws IOException {
+                if (length == 0) {
+                        return;
+                }
+
+                if (channel != null) {
+                        encode(CharBuffer.wrap(buffer, 0, length), false);
+                } else if (out instanceof Writer) {
+                        ((Writer) out).write(buffer, 0, length);
+                } else {
+                        out.append(CharBuffer.wrap(buffer, 0, length));
+                }
+
+                length = 0;
+        }
+
+        private void encode(CharBuffer chars, boolean end) throws IOException {
+                CoderResult result;
+
+                do {
+                        result = encoder.encode(chars, bytes, end);
+                        flush(result);
+                } while (result.isOverflow());
+        }
+
+        /**
+         * Writes the encoded bytes to the channel.
+         */
+        private void flush(CoderResult result) throws IOException {
+                if (result.isError()) {
+                        result.throwException();
+                }
+
+                bytes.flip();
+
+                while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                }
+
+                bytes.clear();
+        }
+}
@@ -0,0 +1,352 @@
+/*
+ * TopN.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The <code>TopN</code> class keeps the 'N' largest (or smallest) values of
+ * an unbounded stream of values. Only those values are held in memory, in a
+ * bounded heap whose root is the least of them, so each offer takes at most
+ * <tt>O(log N)</tt> time and most offers of a long stream are rejected by a
+ * single comparison with the root.
+ * <p>
+ * Values are ordered like <tt>Double.compare()</tt>, in which not-a-number
+ * values are the largest.
+ * <p>
+ * The <tt>Value</tt> instances offered are kept along with their correlations.
+ * A <tt>Value</tt> instance is only created for the primitive values actually
+ * kept.
+ * <p>
+ * All operations are synchronized on the instance.
+ */
+public class TopN {
+
+        /** Log4J library */
+        private static final Logger log = Logger.getLogger(TopN.class);
+
+        private final int capacity;
+        private final boolean isLargest;
+
+        // Heap of slots, the root being the least of the values kept
+        private final double keys[];
+        private final Value values[];
+        private final int heap[];
+        private int size = 0;
+        private long seen = 0;
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Constructors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Constructs an instance keeping the specified number of largest values.
+         *
+         * @param capacity
+         *            number of values to be kept, must be positive
+         */
+        public TopN(int capacity) {
+                this(capacity, true);
+        }
+
+        /**
+         * Constructs an instance keeping the specified number of largest or
+         * smallest values.
+         *
+         * @param capacity
+         *            number of values to be kept, must be positive
+         * @param largest
+         *            <tt>true</tt> to keep the largest values, <tt>false</tt>
+         *            to keep the smallest
+         */
+        public TopN(int capacity, boolean largest) {
+                if (capacity <= 0) {
+                        throw new IllegalArgumentException("Invalid capacity: "
+                                        + capacity);
+                }
+
+                this.capacity = capacity;
+                this.isLargest = largest;
+
+                keys = new double[capacity];
+                values = new Value[capacity];
+                heap = new int[capacity];
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Update Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Offers the specified value.
+         *
+         * @param value
+         *            a sample value
+         */
+        public synchronized void offer(double value) {
+                seen++;
+
+                if (accepts(value)) {
+                        keep(value, new Value(value));
+                }
+        }
+
+        /**
+         * Offers the specified <code>Number</code>. Like with
+         * <tt>DataSet.addValue(Number)</tt>, the number is kept as a correlation
+         * of the value.
+         *
+         * @param value
+         *            a sample value
+         */
+        public synchronized void offer(Number value) {
+                if (value != null) {
+                        seen++;
+
+                        if (accepts(value.doubleValue())) {
+                                Value v = new Value(value);
+                                v.addCorrelation(value);
+                                keep(v.doubleValue(), v);
+                        }
+                }
+        }
+
+        /**
+         * Offers the specified value.
+         *
+         * @param value
+         *            a sample value
+         */
+        public synchronized void offer(Value value) {
+                if (value != null) {
+                        seen++;
+
+                        if (accepts(value.doubleValue())) {
+                                keep(value.doubleValue(), value);
+                        }
+                }
+        }
+
+        /**
+         * Offers every value of the specified data set.
+         *
+         * @param ds
+         *            data set whose values are offered
+         */
+        public synchronized void offer(DataSet ds) {
+                if (ds != null) {
+                        synchronized (ds) {
+                                int n = ds.prepare();
+
+                                for (int i = 0; i < n; i++) {
+                                        double x = ds.valueAt(i);
+
+                                        seen++;
+
+                                        if (accepts(x)) {
+                                                keep(x, ds.getValueAt(i));
+                                        }
+                                }
+                        }
+                }
+        }
+
+        /**
+         * Removes all values.
+         */
+        public synchronized void reset() {
+                for (int i = 0; i < size; i++) {
+                        values[i] = null;
+                }
+
+                size = 0;
+                seen = 0;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Query Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the maximum number of values kept.
+         *
+         * @return the capacity of this instance
+         */
+        public int getCapacity() {
+                return capacity;
+        }
+
+        /**
+         * Requests if the largest values are kept.
+         *
+         * @return <tt>true</tt> if the largest values are kept, <tt>false</tt>
+         *         if the smallest are
+         */
+        public boolean isLargest() {
+                return isLargest;
+        }
+
+        /**
+         * Requests the number of values currently kept.
+         *
+         * @return a count of values
+         */
+        public synchronized int getCount() {
+                return size;
+        }
+
+        /**
+         * Requests the number of values offered.
+         *
+         * @return length of the stream
+         */
+        public synchronized long getSeen() {
+                return seen;
+        }
+
+        /**
+         * Retrieves the least of the values kept: the 'Nth' largest (or
+         * smallest) value offered so far, once 'N' values were offered. A value
+         * must be beyond it to be kept.
+         *
+         * @return a value instance, <tt>null</tt> if no value was kept
+         */
+        public synchronized Value getThreshold() {
+                return size > 0 ? values[heap[0]] : null;
+        }
+
+        /**
+         * Creates a new data set containing the values currently kept, in
+         * ascending order. The <tt>Value</tt> instances are referenced rather
+         * than duplicated, and the data set is not affected by later offers.
+         *
+         * @return a new data set instance
+         */
+        public synchronized DataSet getDataSet() {
+                DataSet ds = new DataSet();
+                int order[] = Sorter.order(keys, 0, size, false);
+
+                for (int i = 0; i < size; i++) {
+                        ds.addValue(values[order[i]]);
+                }
+
+                log.debug("Kept " + size + " out of " + seen + " values");
+
+                return ds;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests if the specified value would be kept if offered.
+         */
+        boolean accepts(double value) {
+                return size < capacity || compare(value, keys[heap[0]]) > 0;
+        }
+
+        /**
+         * Keeps the specified value, which must be accepted, evicting the root
+         * when full.
+         */
+        private void keep(double key, Value value) {
+                if (size < capacity) {
+                        keys[size] = key;
+                        values[size] = value;
+                        heap[size] = size;
+                        siftUp(size++);
+                } else {
+                        int slot = heap[0];
+
+                        keys[slot] = key;
+                        values[slot] = value;
+                        siftDown(0);
+                }
+        }
+
+        /**
+         * Compares two values, the larger being the one preferred.
+         */
+        private int compare(double a, double b) {
+                return isLargest ? Double.compare(a, b) : Double.compare(b, a);
+        }
+
+        private void siftUp(int i) {
+                int slot = heap[i];
+
+                while (i > 0) {
+                        int parent = (i - 1) >>> 1;
+
+                        if (compare(keys[heap[parent]], keys[slot]) <= 0) {
+                                break;
+                        }
+
+                        heap[i] = heap[parent];
+                        i = parent;
+                }
+
+                heap[i] = slot;
+        }
+
+        private void siftDown(int i) {
+                int slot = heap[i];
+
+                while (true) {
+                        int child = 2 * i + 1;
+
+                        if (child >= size) {
+                                break;
+                        }
+
+                        if (child + 1 < size
+                                        && compare(keys[heap[child + 1]], keys[heap[child]]) < 0) {
+                                child++;
+                        }
+
+                        if (compare(keys[slot], keys[heap[child]]) <= 0) {
+                                break;
+                        }
+
+                        heap[i] = heap[child];
+                        i = child;
+                }
+
+                heap[i] = slot;
+        }
+
+        /**
+         * Returns a string representation of this instance.
+         *
+         * @return a string representation of the object.
+         */
+        public synchronized String toString() {
+                return "TopN[capacity=" + capacity + ", "
+                                + (isLargest ? "largest" : "smallest") + ", count=" + size
+                                + ", seen=" + seen + "]";
+        }
+}
@@ -0,0 +1,361 @@
+/*
+ * Transform.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jeach.stats;
+
+/**
+ * The <code>Transform</code> class is a lazy chain of element-wise operations
+ * over the values of a data set, obtained with <tt>DataSet.transform()</tt>.
+ * <p>
+ * Operations such as <tt>shift()</tt>, <tt>scale()</tt> or <tt>square()</tt>
+ * only describe the chain and return a new transform. Nothing is computed
+ * until a terminal operation (<tt>sum()</tt>, <tt>mean()</tt>,
+ * <tt>variance()</tt>, <tt>toDataSet()</tt>, ...) is invoked, which then runs
+ * the whole chain in a single loop over the data set, without creating any
+ * intermediate data set or <tt>Value</tt> instance.
+ * <p>
+ * For example, the sum of squared distances to the mean is computed in one
+ * pass with:
+ * <p>
+ * <tt>ds.transform().shift(-mean).square().sum()</tt>
+ * <p>
+ * Transforms are immutable and may be reused; each terminal operation reads
+ * the current values of the data set while holding its lock.
+ */
+public class Transform {
+
+        /**
+         * A function applied to each value by <tt>map()</tt>.
+         */
+        public interface Function {
+                double apply(double value);
+        }
+
+        /**
+         * A condition tested on each value by <tt>filter()</tt>.
+         */
+        public interface Predicate {
+                boolean test(double value);
+        }
+
+        private static final int SHIFT = 0;
+        private static final int SCALE = 1;
+        private static final int SQUARE = 2;
+        private static final int ABS = 3;
+        private static final int MAP = 4;
+        private static final int FILTER = 5;
+
+        private final DataSet source;
+        private final int ops[];
+        private final double params[];
+        private final Object functions[];
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Constructors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Constructs the identity transform of the specified data set.
+         *
+         * @param source
+         *            data set whose values are transformed
+         */
+        Transform(DataSet source) {
+                this(source, new int[0], new double[0], new Object[0]);
+        }
+
+        private Transform(DataSet source, int ops[], double params[],
+                        Object functions[]) {
+                this.source = source;
+                this.ops = ops;
+                this.params = params;
+                this.functions = functions;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Intermediate Operations
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Adds the specified amount to each value.
+         *
+         * @param amount
+         *            to be added
+         * @return a new transform
+         */
+        public Transform shift(double amount) {
+                return then(SHIFT, amount, null);
+        }
+
+        /**
+         * Multiplies each value by the specified factor.
+         *
+         * @param factor
+         *            to multiply by
+         * @return a new transform
+         */
+        public Transform scale(double factor) {
+                return then(SCALE, factor, null);
+        }
+
+        /**
+         * Squares each value.
+         *
+         * @return a new transform
+         */
+        public Transform square() {
+                return then(SQUARE, 0.0, null);
+        }
+
+        /**
+         * Takes the absolute value of each value.
+         *
+         * @return a new transform
+         */
+        public Transform abs() {
+                return then(ABS, 0.0, null);
+        }
+
+        /**
+         * Applies the specified function to each value.
+         *
+         * @param function
+         *            to be applied
+         * @return a new transform
+         */
+        public Transform map(Function function) {
+                if (function == null) {
+                        throw new IllegalArgumentException("Function is null");
+                }
+
+                return then(MAP, 0.0, function);
+        }
+
+        /**
+         * Keeps only the values satisfying the specified condition.
+         *
+         * @param predicate
+         *            condition to be satisfied
+         * @return a new transform
+         */
+        public Transform filter(Predicate predicate) {
+                if (predicate == null) {
+                        throw new IllegalArgumentException("Predicate is null");
+                }
+
+                return then(FILTER, 0.0, predicate);
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Terminal Operations
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Counts the transformed values (those not filtered out).
+         *
+         * @return a count of values
+         */
+        public int count() {
+                return run(null).count;
+        }
+
+        /**
+         * Sums the transformed values.
+         *
+         * @return a value object, <tt>null</tt> if there are no values
+         */
+        public Value sum() {
+                Result r = run(null);
+                return r.count > 0 ? new Value(r.sum + r.compensation) : null;
+        }
+
+        /**
+         * Calculates the mean of the transformed values.
+         *
+         * @return a value object, <tt>null</tt> if there are no values
+         */
+        public Value mean() {
+                Result r = run(null);
+                return r.count > 0 ? new Value(r.mean) : null;
+        }
+
+        /**
+         * Calculates the variance of the transformed values, dividing by the
+         * count like <tt>DataSet.getVariance()</tt>.
+         *
+         * @return a value object, <tt>null</tt> if there are no values
+         */
+        public Value variance() {
+                Result r = run(null);
+                return r.count > 0 ? new Value(r.m2 / r.count) : null;
+        }
+
+        /**
+         * Calculates the standard deviation of the transformed values, dividing
+         * by the count less one like <tt>DataSet.getStandardDeviation()</tt>.
+         *
+         * @return a value object, <tt>null</tt> if there are less than two values
+         */
+        public Value standardDeviation() {
+                Result r = run(null);
+                return r.count > 1 ? new Value(Math.sqrt(r.m2 / (r.count - 1))) : null;
+        }
+
+        /**
+         * Retrieves the smallest transformed value.
+         *
+         * @return a value object, <tt>null</tt> if there are no values
+         */
+        public Value min() {
+                Result r = run(null);
+                return r.count > 0 ? new Value(r.min) : null;
+        }
+
+        /**
+         * Retrieves the largest transformed value.
+         *
+         * @return a value object, <tt>null</tt> if there are no values
+         */
+        public Value max() {
+                Result r = run(null);
+                return r.count > 0 ? new Value(r.max) : null;
+        }
+
+        /**
+         * Materializes the transformed values into a new primitive-backed data
+         * set, in the order of the source data set.
+         *
+         * @return a new data set instance
+         */
+        public DataSet toDataSet() {
+                DoubleList list = new DoubleList(source.getCount());
+                run(list);
+                return DataSet.wrap(list.array(), list.size());
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Accumulated statistics of one run.
+         */
+        private static final class Result {
+                int count = 0;
+                double sum = 0.0;
+                double compensation = 0.0;
+                double mean = 0.0;
+                double m2 = 0.0;
+                double min = Double.NaN;
+                double max = Double.NaN;
+        }
+
+        private Transform then(int op, double param, Object function) {
+                int n = ops.length;
+                int o[] = new int[n + 1];
+                double p[] = new double[n + 1];
+                Object f[] = new Object[n + 1];
+
+                System.arraycopy(ops, 0, o, 0, n);
+                System.arraycopy(params, 0, p, 0, n);
+                System.arraycopy(functions, 0, f, 0, n);
+
+                o[n] = op;
+                p[n] = param;
+                f[n] = function;
+
+                return new Transform(source, o, p, f);
+        }
+
+        /**
+         * Runs the chain over the source values in a single loop, accumulating
+         * the statistics of the results and optionally collecting them.
+         */
+        private Result run(DoubleList collect) {
+                Result r = new Result();
+
+                synchronized (source) {
+                        int n = source.prepare();
+
+                        values: for (int i = 0; i < n; i++) {
+                                double x = source.valueAt(i);
+
+                                for (int j = 0; j < ops.length; j++) {
+                                        switch (ops[j]) {
+                                        case SHIFT:
+                                                x += params[j];
+                                                break;
+                                        case SCALE:
+                                                x *= params[j];
+                                                break;
+                                        case SQUARE:
+                                                x *= x;
+                                                break;
+                                        case ABS:
+                                                x = Math.abs(x);
+                                                break;
+                                        case MAP:
+                                                x = ((Function) functions[j]).apply(x);
+                                                break;
+                                        case FILTER:
+                                                if (!((Predicate) functions[j]).test(x)) {
+                                                        continue values;
+                                                }
+                                                break;
+                                        }
+                                }
+
+                                if (collect != null) {
+                                        collect.addDouble(x);
+                                }
+
+                                double delta = x - r.mean;
+                                r.count++;
+                                r.mean += delta / r.count;
+                                r.m2 += delta * (x - r.mean);
+
+                                double t = r.sum + x;
+
+                                if (Math.abs(r.sum) >= Math.abs(x)) {
+                                        r.compensation += (r.sum - t) + x;
+                                } else {
+                                        r.compensation += (x - t) + r.sum;
+                                }
+
+                                r.sum = t;
+
+                                if (r.count == 1) {
+                                        r.min = x;
+                                        r.max = x;
+                                } else {
+                                        r.min = Math.min(r.min, x);
+                                        r.max = Math.max(r.max, x);
+                                }
+                        }
+                }
+
+                return r;
+        }
+}
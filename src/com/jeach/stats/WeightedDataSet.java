@@ -0,0 +1,486 @@
+/*
+ * WeightedDataSet.java - Created on Sun Oct 18 2026
+ *
+ * Copyright (C) 2005 by Christian Jean.
+ * All rights reserved.
+ *
+ * CONFIDENTIAL AND PROPRIETARY INFORMATION!
+ *
+ * Disclosure or use in part or in whole without prior written consent
+ * constitutes an infringement of copyright laws which may be punishable
+ * by law.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESSED OR IMPLIED WARRANTIES
+ * INCLUDING,  BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND  FITNESS FOR A PARTICULAR  PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL
+ * THE AUTHOR(S), COPYRIGHT  HOLDER(S)  OR ITS  CONTRIBUTOR(S) BE LIABLE FOR
+ * ANY DIRECT,  INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL
+ * DAMAGES  (INCLUDING, BUT NOT  LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES;  LOSS OF USE, DATA, OR  PROFITS;  OR BUSINESS  INTERRUPTION)
+ * HOWEVER  CAUSED  AND  ON  ANY  THEORY  OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT  LIABILITY, OR TORT (INCLUDING  NEGLIGENCE  OR OTHERWISE)  ARISING
+ * IN  ANY WAY  OUT  OF THE  USE OF  THIS SOFTWARE,  EVEN IF  ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.jeach.stats;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The <code>WeightedDataSet</code> class is a container of values each having
+ * a weight, such as response times weighted by the size of the requests.
+ * Values and weights are held in two primitive columns: no object is created
+ * per value, and weighted statistics are computed in single passes over the
+ * columns without allocating.
+ * <p>
+ * Weights are non-negative. The variance depends on the meaning of the
+ * weights:
+ * <ul>
+ * <li><b>frequency weights</b> - a weight is the number of times the value
+ * was observed, as if the value was repeated.</li>
+ * <li><b>reliability weights</b> - a weight is the relative importance (for
+ * example the inverse variance) of the value, only their ratios matter.</li>
+ * </ul>
+ * <p>
+ * Percentiles, including the median, use the cumulative weight of the values
+ * in ascending order. The sorting permutation is computed once and reused
+ * until the data set is modified.
+ * <p>
+ * All operations are synchronized on the data set instance.
+ */
+public class WeightedDataSet {
+
+        /** Log4J library */
+        private static final Logger log = Logger.getLogger(WeightedDataSet.class);
+
+        /** Unbiased variance for weights counting occurrences */
+        public static final int FREQUENCY_WEIGHTS = 0;
+
+        /** Unbiased variance for weights measuring relative importance */
+        public static final int RELIABILITY_WEIGHTS = 1;
+
+        private double values[];
+        private double weights[];
+        private int size = 0;
+        private int order[] = null; // ascending order of the values, if known
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Constructors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Constructs an empty weighted data set.
+         */
+        public WeightedDataSet() {
+                values = new double[16];
+                weights = new double[16];
+        }
+
+        /**
+         * Constructs a weighted data set with the specified values and weights.
+         *
+         * @param values
+         *            sample values
+         * @param weights
+         *            weight of each value, as many as values
+         */
+        public WeightedDataSet(double values[], double weights[]) {
+                this();
+                addValues(values, weights);
+        }
+
+        /**
+         * Constructs a weighted data set with the values of the specified data
+         * set, in its current order, and the specified weights.
+         *
+         * @param values
+         *            data set of sample values
+         * @param weights
+         *            weight of each value, as many as values
+         */
+        public WeightedDataSet(DataSet values, double weights[]) {
+                this();
+
+                if (values != null) {
+                        double data[] = values.getDoubleValues();
+                        addValues(data != null ? data : new double[0], weights);
+                }
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Add/Remove Functionality
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Adds a value with a weight of one.
+         *
+         * @param value
+         *            to be added
+         */
+        public void addValue(double value) {
+                addValue(value, 1.0);
+        }
+
+        /**
+         * Adds a value with the specified weight.
+         *
+         * @param value
+         *            to be added
+         * @param weight
+         *            of the value, non-negative
+         */
+        public synchronized void addValue(double value, double weight) {
+                check(weight);
+
+                if (size == values.length) {
+                        int capacity = size + (size >> 1);
+                        values = Arrays.copyOf(values, capacity);
+                        weights = Arrays.copyOf(weights, capacity);
+                }
+
+                values[size] = value;
+                weights[size] = weight;
+                size++;
+                order = null;
+        }
+
+        /**
+         * Adds values with the specified weights.
+         *
+         * @param values
+         *            to be added
+         * @param weights
+         *            weight of each value, as many as values
+         */
+        public synchronized void addValues(double values[], double weights[]) {
+                if (values == null || weights == null) {
+                        return;
+                }
+
+                if (values.length != weights.length) {
+                        throw new IllegalArgumentException("Unaligned weights: "
+                                        + values.length + " values and " + weights.length
+                                        + " weights");
+                }
+
+                for (int i = 0; i < values.length; i++) {
+                        addValue(values[i], weights[i]);
+                }
+        }
+
+        /**
+         * Removes the value, and its weight, located at the specified index.
+         *
+         * @param index
+         *            location to be removed
+         * @return <tt>true</tt> if a value was removed, <tt>false</tt> otherwise
+         */
+        public synchronized boolean removeValueAt(int index) {
+                if (index < 0 || index >= size) {
+                        return false;
+                }
+
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+                size--;
+                order = null;
+
+                return true;
+        }
+
+        /**
+         * Removes all values.
+         *
+         * @return a count of values which were removed
+         */
+        public synchronized int clear() {
+                int count = size;
+
+                size = 0;
+                order = null;
+
+                return count;
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Public Accessors
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Requests the number of values.
+         *
+         * @return a count of values
+         */
+        public synchronized int getCount() {
+                return size;
+        }
+
+        /**
+         * Requests the value at the specified index.
+         *
+         * @param index
+         *            of the value
+         * @return a value instance, <tt>null</tt> if the index is out of range
+         */
+        public synchronized Value getValueAt(int index) {
+                return index >= 0 && index < size ? new Value(values[index]) : null;
+        }
+
+        /**
+         * Requests the weight of the value at the specified index.
+         *
+         * @param index
+         *            of the value
+         * @return a value instance, <tt>null</tt> if the index is out of range
+         */
+        public synchronized Value getWeightAt(int index) {
+                return index >= 0 && index < size ? new Value(weights[index]) : null;
+        }
+
+        /**
+         * Creates a new data set with the values, without their weights.
+         *
+         * @return a new data set instance
+         */
+        public synchronized DataSet getDataSet() {
+                return DataSet.wrap(Arrays.copyOf(values, size));
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Statistics Section
+        // ///////////////////////////////////////////////////////////////////////
+
+        /**
+         * Retrieves the sum of the weights.
+         *
+         * @return a value instance
+         */
+        public synchronized Value getTotalWeight() {
+                return new Value(moments()[0]);
+        }
+
+        /**
+         * Retrieves Kish's effective sample size, <tt>(sum w)^2 / sum w^2</tt>:
+         * the number of equally weighted values giving the same precision.
+         *
+         * @return a value instance, <tt>null</tt> if the total weight is zero
+         */
+        public synchronized Value getEffectiveCount() {
+                double m[] = moments();
+                return m[0] > 0.0 ? new Value(m[0] * m[0] / m[3]) : null;
+        }
+
+        /**
+         * Retrieves the weighted arithmetic mean, <tt>sum(w x) / sum(w)</tt>.
+         *
+         * @return a value instance, <tt>null</tt> if the total weight is zero
+         */
+        public synchronized Value getMean() {
+                double m[] = moments();
+                return m[0] > 0.0 ? new Value(m[1]) : null;
+        }
+
+        /**
+         * Retrieves the weighted variance, dividing the weighted sum of squared
+         * distances to the mean by the total weight like
+         * <tt>DataSet.getVariance()</tt>.
+         *
+         * @return a value instance, <tt>null</tt> if the total weight is zero
+         */
+        public synchronized Value getVariance() {
+                double m[] = moments();
+                return m[0] > 0.0 ? new Value(m[2] / m[0]) : null;
+        }
+
+        /**
+         * Retrieves the unbiased weighted variance for the specified kind of
+         * weights. For frequency weights, the sum of squared distances is divided
+         * by <tt>sum(w) - 1</tt>; for reliability weights, by
+         * <tt>sum(w) - sum(w^2) / sum(w)</tt>.
+         *
+         * @param weighting
+         *            one of <tt>FREQUENCY_WEIGHTS</tt> or
+         *            <tt>RELIABILITY_WEIGHTS</tt>
+         * @return a value instance, <tt>null</tt> if the divisor is not positive
+         */
+        public synchronized Value getVariance(int weighting) {
+                double m[] = moments();
+                double divisor = 0.0;
+
+                switch (weighting) {
+                case FREQUENCY_WEIGHTS:
+                        divisor = m[0] - 1.0;
+                        break;
+                case RELIABILITY_WEIGHTS:
+                        divisor = m[0] > 0.0 ? m[0] - m[3] / m[0] : 0.0;
+                        break;
+                default:
+                        throw new IllegalArgumentException("Invalid weighting: "
+                                        + weighting);
+                }
+
+                return divisor > 0.0 ? new Value(m[2] / divisor) : null;
+        }
+
+        /**
+         * Retrieves the weighted standard deviation for the specified kind of
+         * weights, the square root of <tt>getVariance(weighting)</tt>.
+         *
+         * @param weighting
+         *            one of <tt>FREQUENCY_WEIGHTS</tt> or
+         *            <tt>RELIABILITY_WEIGHTS</tt>
+         * @return a value instance, <tt>null</tt> if the divisor is not positive
+         */
+        public synchronized Value getStandardDeviation(int weighting) {
+                Value var = getVariance(weighting);
+                return var != null ? new Value(Math.sqrt(var.doubleValue())) : null;
+        }
+
+        /**
+         * Retrieves the weighted median, see <tt>getPercentile()</tt>.
+         *
+         * @return a value instance, <tt>null</tt> if the total weight is zero
+         */
+        public Value getMedian() {
+                return getPercentile(50.0);
+        }
+
+        /**
+         * Retrieves the weighted percentile: the smallest value at which the
+         * cumulative weight of the values, in ascending order, reaches the
+         * specified percentage of the total weight. When it is reached exactly,
+         * the mean of that value and the next one is taken, so that equal weights
+         * give the same median as <tt>DataSet.getMedian()</tt>.
+         *
+         * @param percentile
+         *            between 0 and 100
+         * @return a value instance, <tt>null</tt> if the total weight is zero
+         */
+        public synchronized Value getPercentile(double percentile) {
+                if (!(percentile >= 0.0 && percentile <= 100.0)) {
+                        throw new IllegalArgumentException("Invalid percentile: "
+                                        + percentile);
+                }
+
+                double total = moments()[0];
+
+                if (!(total > 0.0)) {
+                        return null;
+                }
+
+                if (order == null) {
+                        log.debug("Sorting " + size + " weighted values");
+                        order = Sorter.order(values, 0, size, false);
+                }
+
+                double target = total * percentile / 100.0;
+                double cumulative = 0.0;
+                int i = 0;
+
+                // Skip the values without weight, they never reach the target
+                while (i < size && (weights[order[i]] == 0.0 || cumulative
+                                + weights[order[i]] < target)) {
+                        cumulative += weights[order[i]];
+                        i++;
+                }
+
+                if (i == size) {
+                        i = last();
+                }
+
+                double x = values[order[i]];
+                cumulative += weights[order[i]];
+
+                if (cumulative == target && percentile < 100.0) {
+                        int j = next(i);
+
+                        if (j < size) {
+                                x = (x + values[order[j]]) / 2;
+                        }
+                }
+
+                return new Value(x);
+        }
+
+        // ///////////////////////////////////////////////////////////////////////
+        // Internal Management
+        // ///////////////////////////////////////////////////////////////////////
+
+        private static void check(double weight) {
+                if (!(weight >= 0.0) || Double.isInfinite(weight)) {
+                        throw new IllegalArgumentException("Invalid weight: " + weight);
+                }
+        }
+
+        /**
+         * Computes, in a single pass, the total weight, the weighted mean, the
+         * weighted sum of squared distances to the mean (West's incremental
+         * algorithm) and the sum of the squared weights.
+         */
+        private double[] moments() {
+                double total = 0.0;
+                double mean = 0.0;
+                double m2 = 0.0;
+                double squares = 0.0;
+
+                for (int i = 0; i < size; i++) {
+                        double w = weights[i];
+
+                        if (w == 0.0) {
+                                continue;
+                        }
+
+                        double x = values[i];
+                        double delta = x - mean;
+
+                        total += w;
+                        mean += delta * w / total;
+                        m2 += w * delta * (x - mean);
+                        squares += w * w;
+                }
+
+                return new double[] { total, mean, m2, squares };
+        }
+
+        /**
+         * Requests the position, in ascending order, of the largest value with a
+         * weight.
+         */
+        private int last() {
+                int i = size - 1;
+
+                while (weights[order[i]] == 0.0) {
+                        i--;
+                }
+
+                return i;
+        }
+
+        /**
+         * Requests the position, in ascending order, of the next value with a
+         * weight, <tt>size</tt> if there is none.
+         */
+        private int next(int i) {
+                i++;
+
+                while (i < size && weights[order[i]] == 0.0) {
+                        i++;
+                }
+
+                return i;
+        }
+
+        /**
+         * Returns a string representation of this data set.
+         *
+         * @return a string representation of the object.
+         */
+        public synchronized String toString() {
+                return "WeightedDataSet[count=" + size + ", weight=" + moments()[0]
+                                + "]";
+        }
+}